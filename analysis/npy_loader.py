@@ -0,0 +1,70 @@
+# Loaders for the "npy" output format of the simulation.
+#
+# realization_<p>_<r>/         time.npy (steps,), type.npy, x.npy, y.npy, radius.npy (steps, agents)
+# realization_<p>_<r>_vel/     time.npy, zombiePercentage.npy, averageVelocity.npy (steps,)
+#
+# The column of the (steps, agents) arrays is the agent id; type is 0 for HUMAN
+# and 1 for ZOMBIE. Arrays are memory mapped, so nothing is parsed or copied
+# until it is used.
+import os
+import numpy as np
+import pandas as pd
+
+AGENT_TYPES = np.array(['HUMAN', 'ZOMBIE'])
+
+
+def load_positions(directory):
+    """
+    Memory maps the positions of one realization.
+
+    Args:
+        directory (str): Path to the realization_<p>_<r> directory
+
+    Returns:
+        dict: time, type, x, y and radius arrays
+    """
+    return {name: np.load(os.path.join(directory, name + '.npy'), mmap_mode='r')
+            for name in ('time', 'type', 'x', 'y', 'radius')}
+
+
+def load_velocities(directory):
+    """
+    Memory maps the zombie percentage and average velocity series of one realization.
+
+    Args:
+        directory (str): Path to the realization_<p>_<r>_vel directory
+
+    Returns:
+        dict: time, zombiePercentage and averageVelocity arrays
+    """
+    return {name: np.load(os.path.join(directory, name + '.npy'), mmap_mode='r')
+            for name in ('time', 'zombiePercentage', 'averageVelocity')}
+
+
+def positions_dataframe(directory):
+    """
+    Builds the same long table as the positions CSV
+    (Time, AgentID, AgentType, PosX, PosY, Radius), for code written against it.
+    """
+    data = load_positions(directory)
+    steps, agents = data['x'].shape
+    return pd.DataFrame({
+        'Time': np.repeat(data['time'], agents),
+        'AgentID': np.tile(np.arange(agents), steps),
+        'AgentType': AGENT_TYPES[np.asarray(data['type']).ravel()],
+        'PosX': np.asarray(data['x']).ravel(),
+        'PosY': np.asarray(data['y']).ravel(),
+        'Radius': np.asarray(data['radius']).ravel(),
+    })
+
+
+def velocities_dataframe(directory):
+    """
+    Builds the same table as the _vel CSV (Time, zombiePercentage, averageVelocity).
+    """
+    data = load_velocities(directory)
+    return pd.DataFrame({
+        'Time': np.asarray(data['time']),
+        'zombiePercentage': np.asarray(data['zombiePercentage']),
+        'averageVelocity': np.asarray(data['averageVelocity']),
+    })
@@ -0,0 +1,76 @@
+package itba.edu.ar.benchmarks;
+
+import itba.edu.ar.simulation.Agent;
+import itba.edu.ar.simulation.Config;
+import itba.edu.ar.simulation.Simulation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// The per-agent methods of a sequential step
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class AgentBenchmark {
+    @Param({ "50", "500", "2000", "10000" })
+    private int agents;
+
+    @Param({ "scalar", "vector" })
+    private String distanceKernel;
+
+    private Simulation simulation;
+    private List<Agent> population;
+    private double timeStep;
+
+    // Rebuilt every iteration, so agents do not drift away from the warmed-up state
+    @Setup(Level.Iteration)
+    public void setUp() {
+        Config config = BenchmarkConfigs.config(agents);
+        config.setDistanceKernel(distanceKernel);
+        simulation = BenchmarkConfigs.warmedUp(config);
+        population = simulation.getAgents();
+        timeStep = simulation.getConfig().getTimeStep();
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        simulation.close();
+    }
+
+    @Benchmark
+    public void updatePosition() {
+        for (Agent agent : population) {
+            agent.updatePosition(timeStep);
+        }
+    }
+
+    @Benchmark
+    public void calculateRadius() {
+        for (Agent agent : population) {
+            agent.calculateRadius(timeStep);
+        }
+    }
+
+    @Benchmark
+    public void updateDesiredDirection() {
+        for (Agent agent : population) {
+            agent.updateDesiredDirection();
+        }
+    }
+}
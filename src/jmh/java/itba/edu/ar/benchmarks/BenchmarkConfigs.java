@@ -0,0 +1,60 @@
+package itba.edu.ar.benchmarks;
+
+import itba.edu.ar.simulation.Config;
+import itba.edu.ar.simulation.Simulation;
+
+// Configurations shared by the benchmarks: the parameters of config/config.json, with the arena grown with the
+// population so every size runs at the same density
+final class BenchmarkConfigs {
+    // Agents the arena of config.json is sized for
+    private static final int REFERENCE_AGENTS = 51;
+    private static final double REFERENCE_ARENA_RADIUS = 11.0;
+
+    // Steps run before measuring, so agents have spread out and touched
+    static final int WARMUP_STEPS = 20;
+
+    private BenchmarkConfigs() {
+    }
+
+    // Contacts never end, so no agent changes type and the mix of humans and zombies stays the one it started with
+    // while it is measured
+    static Config config(int agents) {
+        Config config = new Config();
+        config.setCpmBeta(0.9);
+        config.setAz(8);
+        config.setBz(4);
+        config.setAh(4);
+        config.setBh(1);
+        config.setAw(8);
+        config.setBw(1);
+        config.setnH(1);
+        config.setnZ(2);
+        config.setNoiseDir(3);
+        config.setArenaRadius(REFERENCE_ARENA_RADIUS * Math.sqrt((double) agents / REFERENCE_AGENTS));
+        config.setSimulationTime(Double.MAX_VALUE);
+        config.setTimeStep(0.05);
+        config.setRealizations(1);
+        config.setOutputDirectory("target/benchmark_output");
+        config.setMinTimeToCalculateVelocity(250);
+        config.setSeed(20241108);
+        config.setInitialZombies(Math.max(1, agents / 50));
+        config.setInitialHumans(agents - config.getInitialZombies());
+        config.setHumanSpeed(4.0);
+        config.setZombieSpeed(4.0);
+        config.setContactDuration(Double.MAX_VALUE);
+        config.setProbabilityInfection(0.0);
+        config.setMinRadius(0.15);
+        config.setMaxRadius(0.35);
+        config.setRelaxationTime(0.5);
+        return config;
+    }
+
+    // A simulation that already ran WARMUP_STEPS steps
+    static Simulation warmedUp(Config config) {
+        Simulation simulation = new Simulation(config, 1);
+        for (int step = 0; step < WARMUP_STEPS; step++) {
+            simulation.step();
+        }
+        return simulation;
+    }
+}
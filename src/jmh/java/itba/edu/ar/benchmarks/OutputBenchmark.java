@@ -0,0 +1,82 @@
+package itba.edu.ar.benchmarks;
+
+import itba.edu.ar.OutputHandler;
+import itba.edu.ar.simulation.Config;
+import itba.edu.ar.simulation.Simulation;
+import itba.edu.ar.simulation.SimulationSnapshot;
+import itba.edu.ar.simulation.SnapshotSink;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Writing one recorded step, positions and the _vel statistics, through the sink OutputHandler opens for each
+// output format
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OutputBenchmark {
+    @Param({ "50", "500", "2000", "10000" })
+    private int agents;
+
+    @Param({ Config.OUTPUT_FORMAT_CSV, Config.OUTPUT_FORMAT_NPY })
+    private String outputFormat;
+
+    private Config config;
+    private SimulationSnapshot snapshot;
+    private Path directory;
+    private SnapshotSink sink;
+
+    @Setup
+    public void setUp() {
+        config = BenchmarkConfigs.config(agents);
+        config.setOutputFormat(outputFormat);
+        config.setSavePositions(true);
+        config.setSaveVelocitiesAndPercentages(true);
+        Simulation simulation = BenchmarkConfigs.warmedUp(config);
+        snapshot = new SimulationSnapshot(agents);
+        snapshot.capture(simulation.getCurrentTime(), simulation.getStore());
+    }
+
+    @Setup(Level.Iteration)
+    public void openSink() throws IOException {
+        directory = Files.createTempDirectory("zombies-output-benchmark");
+        config.setOutputDirectory(directory.toString());
+        sink = OutputHandler.createSnapshotSink(config, 1);
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeSink() throws IOException {
+        sink.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public void writeStep() throws IOException {
+        sink.accept(snapshot);
+        sink.acceptStatistics(snapshot.getTime(), snapshot.zombiePercentage(), snapshot.averageVelocity());
+    }
+}
@@ -0,0 +1,54 @@
+package itba.edu.ar.benchmarks;
+
+import itba.edu.ar.simulation.AgentType;
+import itba.edu.ar.simulation.Config;
+import itba.edu.ar.simulation.PositionInitializer;
+import itba.edu.ar.simulation.Simulation;
+import itba.edu.ar.simulation.SplitMix64;
+import itba.edu.ar.simulation.Vector2D;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Placing one more human in an arena that already holds the population, the last and most expensive placement of
+// the initialization
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class PositionInitializerBenchmark {
+    @Param({ "50", "500", "2000", "10000" })
+    private int agents;
+
+    @Param({ "scalar", "vector" })
+    private String distanceKernel;
+
+    private Config config;
+    private Simulation simulation;
+    private SplitMix64 random;
+
+    @Setup
+    public void setUp() {
+        config = BenchmarkConfigs.config(agents);
+        config.setDistanceKernel(distanceKernel);
+        simulation = new Simulation(config, 1);
+        random = new SplitMix64(config.getSeed());
+    }
+
+    @Benchmark
+    public Vector2D initializePosition() {
+        return PositionInitializer.initializePosition(config, simulation.getStore(), AgentType.HUMAN, random);
+    }
+}
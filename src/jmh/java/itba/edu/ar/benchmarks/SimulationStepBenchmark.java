@@ -0,0 +1,54 @@
+package itba.edu.ar.benchmarks;
+
+import itba.edu.ar.simulation.Config;
+import itba.edu.ar.simulation.Simulation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// A full Simulation.step in each stepping mode, without output
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimulationStepBenchmark {
+    @Param({ "50", "500", "2000", "10000" })
+    private int agents;
+
+    @Param({ Config.STEPPING_SEQUENTIAL, Config.STEPPING_PARALLEL })
+    private String steppingMode;
+
+    private Simulation simulation;
+
+    // Rebuilt every iteration, so each one measures the same warmed-up state
+    @Setup(Level.Iteration)
+    public void setUp() {
+        Config config = BenchmarkConfigs.config(agents);
+        config.setSteppingMode(steppingMode);
+        simulation = BenchmarkConfigs.warmedUp(config);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        simulation.close();
+    }
+
+    @Benchmark
+    public boolean step() {
+        return simulation.step();
+    }
+}
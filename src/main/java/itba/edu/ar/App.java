@@ -1,10 +1,16 @@
 package itba.edu.ar;
 
+import itba.edu.ar.simulation.AdaptiveRealizations;
+import itba.edu.ar.simulation.Checkpoint;
 import itba.edu.ar.simulation.Config;
 import itba.edu.ar.simulation.Simulation;
 import itba.edu.ar.simulation.FinishState;
+import itba.edu.ar.simulation.NoOpSnapshotSink;
+import itba.edu.ar.simulation.SnapshotSink;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -13,133 +19,207 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import javax.management.JMException;
 
 public class App {
     public static void main(String[] args) {
         // Cargar configuración
         Config config = ConfigLoader.load("config/config.json");
 
+        // Unir las salidas de los shards en lugar de simular
+        if (args.length == 1 && "merge".equals(args[0])) {
+            try {
+                ShardMerger.merge(config);
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("Error al unir los shards: " + e.getMessage());
+            }
+            return;
+        }
+
+        // Con --shard i/n se corre solo una parte del barrido, en su propio directorio
+        Shard shard = null;
+        try {
+            shard = parseShard(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error al leer los argumentos: " + e.getMessage());
+            return;
+        }
+        if (shard != null) {
+            config.setOutputDirectory(shard.directory(config.getOutputDirectory()));
+        }
+
         // Crear directorio de salida si no existe
         OutputHandler.createOutputDirectory(config.getOutputDirectory());
+        if (shard != null) {
+            try {
+                shard.clearComplete(config.getOutputDirectory());
+            } catch (IOException e) {
+                System.err.println("Error al borrar la marca del shard: " + e.getMessage());
+                return;
+            }
+        }
+
+        // Expandir el barrido en sus puntos
+        List<SweepPoint> points;
+        try {
+            points = SweepPlan.points(config);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error al armar el barrido: " + e.getMessage());
+            return;
+        }
 
         // Notificar las configuraciones
-        System.out.println("Configuraciones: " + config.getProbabilities());
-        System.out.println("Humanos: " + config.getInitialHumansList());
+        if (config.getSweep() == null) {
+            System.out.println("Configuraciones: " + config.getProbabilities());
+            System.out.println("Humanos: " + config.getInitialHumansList());
+        } else {
+            System.out.println("Barrido " + config.getSweep().getDesign() + " de " + points.size()
+                    + " puntos sobre " + config.getSweep().getParameters().keySet());
+        }
         System.out.println("Zombies: " + config.getInitialZombies());
         System.out.println("realizaciones: " + config.getRealizations());
+        System.out.println("Semilla: " + config.getSeed());
 
         // Ejecutar múltiples realizaciones
         int realizations = config.getRealizations();
-        List<Double> probabilities = config.getProbabilities();
         List<FinishState> finishStates = Collections.synchronizedList(new ArrayList<>());
 
-        // Ejecutar varias cantidades de humanos iniciales
-        List<Integer> initialHumans = config.getInitialHumansList();
+        // Con realizaciones adaptativas se arranca con un lote por punto y el
+        // planificador agrega lotes hasta que los intervalos de confianza alcancen
+        AdaptiveRealizations adaptive = config.getAdaptiveRealizations();
+        int initialRealizations = adaptive == null ? realizations : adaptive.getMinRealizations();
+        if (adaptive != null) {
+            System.out.println("Realizaciones adaptativas: entre " + adaptive.getMinRealizations() + " y "
+                    + adaptive.getMaxRealizations() + " por punto");
+        }
+
+        // Armar la lista de trabajos en el orden del barrido, cada uno con los valores de su punto
+        List<SweepJob> jobs = new ArrayList<>();
+        for (SweepPoint point : points) {
+            for (int realization = 1; realization <= initialRealizations; realization++) {
+                jobs.add(new SweepJob(point, realization));
+            }
+        }
+        if (shard != null) {
+            int total = jobs.size();
+            jobs = shard.select(jobs, adaptive != null);
+            System.out.println("Shard " + shard.index() + "/" + shard.count() + ": " + jobs.size() + " de " + total
+                    + " realizaciones en " + config.getOutputDirectory());
+        }
+
+        // Comparar los dos kernels de fuerzas en lugar de guardar resultados
+        if (config.isValidateForceKernel()) {
+            try {
+                ForceKernelValidation.run(jobs, config, Runtime.getRuntime().availableProcessors());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                System.err.println("Interrupted while waiting for simulations to complete");
+            }
+            return;
+        }
 
         long startTime = System.currentTimeMillis();
-        int totalSimulations = probabilities.size() * realizations * initialHumans.size();
         AtomicInteger completedSimulations = new AtomicInteger(0);
 
+        // Los trabajos más largos se despachan primero, según el modelo de costo
+        SweepScheduler scheduler = new SweepScheduler(jobs, config);
+
+        // Saltear las realizaciones que ya están calculadas en el directorio de salida
+        ResultCache cache = null;
+        if (config.isReuseResults()) {
+            try {
+                cache = ResultCache.open(config.getOutputDirectory());
+            } catch (IOException e) {
+                System.err.println("Error al leer el manifiesto: " + e.getMessage());
+            }
+        }
+        if (cache != null) {
+            int reused = 0;
+            for (SweepJob job : jobs) {
+                if (reuse(job, config, cache, scheduler, finishStates)) {
+                    completedSimulations.incrementAndGet();
+                    reused++;
+                }
+            }
+            System.out.println("Realizaciones ya calculadas: " + reused);
+        }
+        ResultCache results = cache;
+
         // Create thread pool
         int processors = Runtime.getRuntime().availableProcessors();
+
+        // Publicar el progreso por JMX
+        SweepMonitor monitor = new SweepMonitor(scheduler, completedSimulations, processors);
+        try {
+            monitor.register();
+        } catch (JMException e) {
+            System.err.println("Error al registrar el monitor: " + e.getMessage());
+        }
+
         ExecutorService executor = Executors.newFixedThreadPool(processors);
-        CountDownLatch latch = new CountDownLatch(totalSimulations);
-
-        for (Integer nH : initialHumans) {
-            config.setInitialHumans(nH);
-
-            for (Double probability : probabilities) {
-                config.setProbabilityInfection(probability);
-
-                // Submit all realizations for this probability
-                for (int realization = 1; realization <= realizations; realization++) {
-                    final int currentRealization = realization;
-                    executor.submit(() -> {
-                        try {
-                            // Inicializar simulación
-                            Config configCopy = new Config(config);
-                            configCopy.setProbabilityInfection(probability);
-                            configCopy.setInitialHumans(nH);
-                            Simulation simulation = new Simulation(configCopy, currentRealization);
-
-                            // Ejecutar simulación
-                            FinishState finishState = simulation.run();
-                            finishStates.add(finishState);
-
-                            // Guardar resultados
-                            if (configCopy.isSavePositions()) {
-                                try {
-                                    OutputHandler.savePositions(configCopy.getOutputDirectory(), simulation);
-                                } catch (IOException e) {
-                                    System.err.println(
-                                            "Error al guardar los resultados: " + e.getMessage());
-                                }
-                            }
-
-                            if (configCopy.isSaveVelocitiesAndPercentages()) {
-                                try {
-                                    OutputHandler.saveVelocitiesAndPercentages(configCopy.getOutputDirectory(),
-                                            simulation);
-                                } catch (IOException e) {
-                                    System.err.println(
-                                            "Error al guardar los resultados: " + e.getMessage());
-                                }
-                            }
-
-                            // Update progress
-                            int completed = completedSimulations.incrementAndGet();
-                            int progressBarWidth = 50;
-                            int progress = (int) ((double) completed / totalSimulations * progressBarWidth);
-
-                            // Calculate ETA
-                            long currentTime = System.currentTimeMillis();
-                            long elapsedTime = currentTime - startTime;
-                            long estimatedTotalTime = (long) ((double) elapsedTime / completed
-                                    * totalSimulations);
-                            long remainingTime = estimatedTotalTime - elapsedTime;
-                            long remainingMinutes = remainingTime / (1000 * 60);
-                            long remainingSeconds = (remainingTime / 1000) % 60;
-
-                            // Print progress bar
-                            StringBuilder progressBar = new StringBuilder("\r[");
-                            for (int i = 0; i < progressBarWidth; i++) {
-                                if (i < progress) {
-                                    progressBar.append("█");
-                                } else {
-                                    progressBar.append(" ");
-                                }
-                            }
-                            progressBar.append(String.format("] %d%% (Nh=%d, P=%.2f, R=%d/%d) ETA: %dm %ds",
-                                    (int) ((double) completed / totalSimulations * 100),
-                                    nH,
-                                    probability,
-                                    currentRealization,
-                                    realizations,
-                                    remainingMinutes,
-                                    remainingSeconds));
-
-                            synchronized (System.out) {
-                                System.out.print(progressBar);
-                            }
-
-                        } finally {
-                            latch.countDown();
-                        }
-                    });
+        CountDownLatch latch = new CountDownLatch(processors);
+
+        for (int worker = 0; worker < processors; worker++) {
+            int workerIndex = worker;
+            executor.submit(() -> {
+                try {
+                    SweepJob job;
+                    while ((job = scheduler.next()) != null) {
+                        runJob(job, config, results, scheduler, monitor, workerIndex, finishStates,
+                                completedSimulations, processors);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (RuntimeException e) {
+                    // submit se guarda la excepción sin mostrarla
+                    System.err.println("Error en el trabajador " + workerIndex + ": " + e.getMessage());
+                    e.printStackTrace();
+                } finally {
+                    latch.countDown();
                 }
-            }
+            });
         }
 
         // Wait for all realizations to complete
         try {
             latch.await();
-            if (config.isSaveFinishStates()) {
+            if (adaptive != null) {
+                printAdaptiveSummary(scheduler);
+                try {
+                    OutputHandler.saveRealizationSummary(scheduler.getPoints(), config);
+                } catch (IOException e) {
+                    System.err.println("Error al guardar el resumen de realizaciones: " + e.getMessage());
+                }
+            }
+            if (config.isSaveFinishStates() && !points.isEmpty()) {
                 try {
-                    OutputHandler.saveFinishStates(finishStates, config);
+                    if (config.getSweep() == null) {
+                        // Un solo archivo con el nombre del último punto, como antes
+                        OutputHandler.saveFinishStates(finishStates, points.get(points.size() - 1).apply(config));
+                    } else {
+                        // Un archivo por punto del barrido
+                        for (SweepScheduler.PointProgress point : scheduler.getPoints()) {
+                            OutputHandler.saveFinishStates(point.getFinishStates(), point.getPoint().apply(config));
+                        }
+                    }
                 } catch (IOException e) {
                     System.err.println("Error al guardar los estados finales: " + e.getMessage());
                 }
             }
+            // Solo un shard sin realizaciones fallidas se puede unir
+            if (shard != null) {
+                int failed = scheduler.getFailed();
+                if (failed > 0) {
+                    System.err.println("El shard tiene " + failed
+                            + " realizaciones fallidas, hay que volver a correrlo antes de unirlo");
+                } else {
+                    try {
+                        shard.markComplete(config.getOutputDirectory());
+                    } catch (IOException e) {
+                        System.err.println("Error al marcar el shard como terminado: " + e.getMessage());
+                    }
+                }
+            }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             System.err.println("Interrupted while waiting for simulations to complete");
@@ -153,8 +233,218 @@ public class App {
         } catch (InterruptedException e) {
             executor.shutdownNow();
         }
+        try {
+            monitor.unregister();
+        } catch (JMException e) {
+            System.err.println("Error al quitar el monitor: " + e.getMessage());
+        }
 
         System.out.println("\nTodas las realizaciones han finalizado en "
                 + (System.currentTimeMillis() - startTime) / 1000 + " segundos.");
     }
+
+    // Cuántas realizaciones necesitó cada punto y por qué se detuvo
+    private static void printAdaptiveSummary(SweepScheduler scheduler) {
+        System.out.println();
+        for (SweepScheduler.PointProgress point : scheduler.getPoints()) {
+            System.out.println(String.format(
+                    "%s: %d realizaciones (%s), zombies %.4f ± %.4f, tiempo %.2f ± %.2f",
+                    point.getPoint().describe(),
+                    point.getRealizations(),
+                    point.getStoppingReason(),
+                    point.getZombieFraction().getMean(),
+                    point.getZombieFraction().halfWidth(scheduler.getConfidence()),
+                    point.getFinishTime().getMean(),
+                    point.getFinishTime().halfWidth(scheduler.getConfidence())));
+        }
+    }
+
+    // Corre una realización, la informa al planificador y muestra el progreso
+    private static void runJob(SweepJob job, Config config, ResultCache cache, SweepScheduler scheduler,
+            SweepMonitor monitor, int worker, List<FinishState> finishStates, AtomicInteger completedSimulations,
+            int processors) {
+        int currentRealization = job.realization();
+
+        // Los lotes adaptativos pueden pedir realizaciones de un barrido anterior
+        if (cache != null && reuse(job, config, cache, scheduler, finishStates)) {
+            printProgress(job, scheduler, completedSimulations.incrementAndGet(), processors);
+            return;
+        }
+
+        // Todo lo que sigue se informa al planificador aunque falle
+        Config configCopy = null;
+        String key = null;
+        List<String> outputs = null;
+        FinishState finishState = null;
+        SnapshotSink sink = null;
+        Simulation simulation = null;
+        try {
+            // Inicializar simulación
+            configCopy = jobConfig(config, job);
+            // También identifica los checkpoints de la realización
+            key = ResultCache.key(configCopy, currentRealization);
+            outputs = OutputHandler.outputNames(configCopy, currentRealization);
+            if (cache != null) {
+                try {
+                    cache.started(key, configCopy, currentRealization, outputs);
+                } catch (IOException e) {
+                    System.err.println("Error al guardar el manifiesto: " + e.getMessage());
+                }
+            }
+            Path checkpointFile = Path.of(OutputHandler.checkpointName(config.getOutputDirectory(), configCopy,
+                    currentRealization));
+            Checkpoint checkpoint = null;
+            if (config.getCheckpointInterval() > 0 && Files.exists(checkpointFile)) {
+                try {
+                    checkpoint = Checkpoint.read(checkpointFile);
+                } catch (IOException e) {
+                    System.err.println("Error al leer el checkpoint: " + e.getMessage());
+                }
+            } else if (config.getCheckpointInterval() <= 0) {
+                // Sin checkpoints se empieza de cero, el de una corrida anterior ya no sirve
+                deleteCheckpoint(checkpointFile);
+            }
+
+            // Ejecutar simulación, guardando los resultados a medida que avanza
+            sink = openSink(configCopy, currentRealization, checkpoint == null ? null : checkpoint.getSinkPositions());
+            simulation = new Simulation(configCopy, currentRealization, sink);
+
+            // Retomar la realización desde su último checkpoint, si quedó uno
+            if (checkpoint != null) {
+                try {
+                    simulation.restore(checkpoint, key);
+                } catch (IOException e) {
+                    // Empezar de cero, con archivos de salida nuevos
+                    System.err.println("Error al leer el checkpoint: " + e.getMessage());
+                    closeSink(sink);
+                    sink = null;
+                    sink = openSink(configCopy, currentRealization, null);
+                    simulation = new Simulation(configCopy, currentRealization, sink);
+                }
+            }
+            if (config.getCheckpointInterval() > 0) {
+                simulation.enableCheckpoints(checkpointFile, (long) (config.getCheckpointInterval() * 1000), key);
+            }
+
+            monitor.started(worker, simulation, sink);
+            finishState = simulation.run();
+            finishStates.add(finishState);
+        } catch (RuntimeException e) {
+            System.err.println("Error en la realización " + currentRealization + " (" + job.point().describe()
+                    + "): " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            if (sink != null) {
+                closeSink(sink);
+            }
+            monitor.finished(worker);
+            // Siempre se informa, para que el planificador no espere un trabajo que falló
+            scheduler.completed(job, simulation == null ? 0 : simulation.getStep(), finishState);
+        }
+        if (cache != null && finishState != null) {
+            try {
+                cache.completed(key, configCopy, currentRealization, simulation.getStep(), finishState, outputs);
+            } catch (IOException e) {
+                System.err.println("Error al guardar el manifiesto: " + e.getMessage());
+            }
+        }
+
+        printProgress(job, scheduler, completedSimulations.incrementAndGet(), processors);
+    }
+
+    // Lee --shard i/n o --shard=i/n; null corre todo el barrido
+    private static Shard parseShard(String[] args) {
+        Shard shard = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--shard") && i + 1 < args.length) {
+                shard = Shard.parse(args[++i]);
+            } else if (args[i].startsWith("--shard=")) {
+                shard = Shard.parse(args[i].substring("--shard=".length()));
+            } else {
+                throw new IllegalArgumentException("Argumento desconocido: " + args[i]);
+            }
+        }
+        return shard;
+    }
+
+    // Configuración con la que corre un trabajo
+    static Config jobConfig(Config config, SweepJob job) {
+        return job.point().apply(config);
+    }
+
+    // Toma el resultado de un barrido anterior si sus salidas siguen ahí
+    private static boolean reuse(SweepJob job, Config config, ResultCache cache, SweepScheduler scheduler,
+            List<FinishState> finishStates) {
+        Config configCopy = jobConfig(config, job);
+        ResultCache.Entry entry = cache.lookup(ResultCache.key(configCopy, job.realization()));
+        if (entry == null) {
+            return false;
+        }
+        // Un checkpoint de una corrida que no terminó ya no se va a retomar
+        deleteCheckpoint(Path.of(OutputHandler.checkpointName(config.getOutputDirectory(), configCopy,
+                job.realization())));
+        finishStates.add(entry.finishState());
+        scheduler.reused(job, entry.steps(), entry.finishState());
+        return true;
+    }
+
+    // Borra el checkpoint que no se va a retomar, para que el shard se pueda unir
+    private static void deleteCheckpoint(Path checkpointFile) {
+        try {
+            Files.deleteIfExists(checkpointFile);
+        } catch (IOException e) {
+            System.err.println("Error al borrar el checkpoint: " + e.getMessage());
+        }
+    }
+
+    // Barra de progreso al terminar un trabajo
+    private static void printProgress(SweepJob job, SweepScheduler scheduler, int completed, int processors) {
+        int totalSimulations = scheduler.getScheduled();
+        int progressBarWidth = 50;
+        int progress = (int) ((double) completed / totalSimulations * progressBarWidth);
+
+        // Calculate ETA
+        long remainingTime = scheduler.remainingMillis(processors);
+        String eta = remainingTime < 0 ? "--"
+                : String.format("%dm %ds", remainingTime / (1000 * 60), (remainingTime / 1000) % 60);
+
+        // Print progress bar
+        StringBuilder progressBar = new StringBuilder("\r[");
+        for (int i = 0; i < progressBarWidth; i++) {
+            if (i < progress) {
+                progressBar.append("█");
+            } else {
+                progressBar.append(" ");
+            }
+        }
+        progressBar.append(String.format("] %d%% (%s, R=%d/%d) ETA: %s",
+                (int) ((double) completed / totalSimulations * 100),
+                job.point().describe(),
+                job.realization(),
+                scheduler.getRealizations(job),
+                eta));
+
+        synchronized (System.out) {
+            System.out.print(progressBar);
+        }
+    }
+
+    // Cierra la salida de una realización, informando si no se puede escribir
+    private static void closeSink(SnapshotSink sink) {
+        try {
+            sink.close();
+        } catch (IOException e) {
+            System.err.println("Error al guardar los resultados: " + e.getMessage());
+        }
+    }
+
+    // Abre la salida de una realización, o una vacía si no se puede escribir
+    private static SnapshotSink openSink(Config config, int realization, long[] resumeFrom) {
+        try {
+            return OutputHandler.createSnapshotSink(config, realization, resumeFrom);
+        } catch (IOException e) {
+            System.err.println("Error al guardar los resultados: " + e.getMessage());
+            return NoOpSnapshotSink.INSTANCE;
+        }
+    }
 }
@@ -0,0 +1,155 @@
+package itba.edu.ar;
+
+import itba.edu.ar.simulation.SimulationSnapshot;
+import itba.edu.ar.simulation.SnapshotSink;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Streams the frames of one realization to the positions CSV and/or the _vel CSV while the simulation runs
+public class CsvSnapshotSink implements SnapshotSink {
+    private final Path posPath;
+    private final Path velPath;
+    private final FileChannel posChannel;
+    private final Writer posCsvWriter;
+    private final FileChannel velChannel;
+    private final Writer velCsvWriter;
+
+    public CsvSnapshotSink(String posFilename, String velFilename) throws IOException {
+        this(posFilename, velFilename, null);
+    }
+
+    public CsvSnapshotSink(String posFilename, String velFilename, long[] resumeFrom) throws IOException {
+        if (resumeFrom != null && resumeFrom.length != 2) {
+            throw new IOException("Se esperaban 2 posiciones CSV para retomar, hay " + resumeFrom.length);
+        }
+        posPath = posFilename == null ? null : Path.of(posFilename);
+        velPath = velFilename == null ? null : Path.of(velFilename);
+        if (posFilename != null) {
+            long resumePosition = resumeFrom == null ? -1 : resumeFrom[0];
+            posChannel = open(posFilename, resumePosition);
+            posCsvWriter = new BufferedWriter(Channels.newWriter(posChannel, StandardCharsets.UTF_8));
+            if (resumePosition < 0) {
+                posCsvWriter.append("Time,AgentID,AgentType,PosX,PosY,Radius\n");
+            }
+        } else {
+            posChannel = null;
+            posCsvWriter = null;
+        }
+
+        if (velFilename != null) {
+            try {
+                long resumePosition = resumeFrom == null ? -1 : resumeFrom[1];
+                velChannel = open(velFilename, resumePosition);
+                velCsvWriter = new BufferedWriter(Channels.newWriter(velChannel, StandardCharsets.UTF_8));
+                if (resumePosition < 0) {
+                    velCsvWriter.append("Time,zombiePercentage,averageVelocity\n");
+                }
+            } catch (IOException e) {
+                if (posCsvWriter != null) {
+                    posCsvWriter.close();
+                }
+                throw e;
+            }
+        } else {
+            velChannel = null;
+            velCsvWriter = null;
+        }
+    }
+
+    @Override
+    public void accept(SimulationSnapshot snapshot) throws IOException {
+        double time = snapshot.getTime();
+
+        if (posCsvWriter != null) {
+            for (int id = 0; id < snapshot.size(); id++) {
+                posCsvWriter.append(time + ",");
+                posCsvWriter.append(id + ",");
+                posCsvWriter.append(snapshot.getType(id).toString() + ",");
+                posCsvWriter.append(snapshot.getX(id) + ",");
+                posCsvWriter.append(snapshot.getY(id) + ",");
+                posCsvWriter.append(snapshot.getRadius(id) + "\n");
+            }
+        }
+    }
+
+    @Override
+    public void acceptStatistics(double time, double zombiePercentage, double averageVelocity) throws IOException {
+        if (velCsvWriter != null) {
+            velCsvWriter.append(time + ",");
+            velCsvWriter.append(zombiePercentage + ",");
+            velCsvWriter.append(averageVelocity + "\n");
+        }
+    }
+
+    // Byte length of the positions and velocities files, -1 for a file that is not written
+    @Override
+    public long[] checkpoint() throws IOException {
+        long[] positions = { -1, -1 };
+        if (posCsvWriter != null) {
+            posCsvWriter.flush();
+            positions[0] = posChannel.position();
+        }
+        if (velCsvWriter != null) {
+            velCsvWriter.flush();
+            positions[1] = velChannel.position();
+        }
+        return positions;
+    }
+
+    @Override
+    public long bytesWritten() {
+        return size(posPath) + size(velPath);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (posCsvWriter != null) {
+                posCsvWriter.close();
+            }
+        } finally {
+            if (velCsvWriter != null) {
+                velCsvWriter.close();
+            }
+        }
+    }
+
+    private static long size(Path path) {
+        if (path == null) {
+            return 0;
+        }
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    // Opens a new file, or an existing one cut back to resumeFrom bytes
+    private static FileChannel open(String filename, long resumeFrom) throws IOException {
+        if (resumeFrom < 0) {
+            return FileChannel.open(Path.of(filename), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        }
+        FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.WRITE);
+        try {
+            if (channel.size() < resumeFrom) {
+                throw new IOException(filename + " is shorter than its checkpoint");
+            }
+            channel.truncate(resumeFrom);
+            channel.position(resumeFrom);
+            return channel;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package itba.edu.ar;
+
+import itba.edu.ar.simulation.Config;
+import itba.edu.ar.simulation.FinishState;
+import itba.edu.ar.simulation.Simulation;
+import itba.edu.ar.simulation.TabulatedKernel;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Runs every job of a sweep with the exact and with the tabulated force kernel and reports the largest deviation of
+// the final observables between the two, for single realizations and for the means of each parameter point
+public class ForceKernelValidation {
+    private record Outcome(FinishState exact, FinishState tabulated) {
+    }
+
+    public static void run(List<SweepJob> jobs, Config config, int workers) throws InterruptedException {
+        TabulatedKernel tabulated = config.getTabulatedKernel() == null ? new TabulatedKernel()
+                : config.getTabulatedKernel();
+        System.out.println("Validando el kernel tabulado con tolerancia " + tabulated.getTolerance() + " en "
+                + jobs.size() + " realizaciones");
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        List<Future<Outcome>> futures = new ArrayList<>();
+        for (SweepJob job : jobs) {
+            futures.add(executor.submit(() -> new Outcome(simulate(job, config, null),
+                    simulate(job, config, tabulated))));
+        }
+
+        double zombieDeviation = 0;
+        double timeDeviation = 0;
+        double velocityDeviation = 0;
+        Map<SweepPoint, RunningStats[]> points = new LinkedHashMap<>();
+        try {
+            for (int i = 0; i < jobs.size(); i++) {
+                SweepJob job = jobs.get(i);
+                Outcome outcome = futures.get(i).get();
+                zombieDeviation = Math.max(zombieDeviation,
+                        Math.abs(zombieFraction(outcome.exact()) - zombieFraction(outcome.tabulated())));
+                timeDeviation = Math.max(timeDeviation, Math.abs(outcome.exact().time() - outcome.tabulated().time()));
+                velocityDeviation = Math.max(velocityDeviation,
+                        Math.abs(outcome.exact().averageVelocity() - outcome.tabulated().averageVelocity()));
+
+                // Exact kernel at even indices and tabulated at odd ones, for zombies, time and velocity
+                RunningStats[] stats = points.computeIfAbsent(job.point(),
+                        key -> new RunningStats[] { new RunningStats(), new RunningStats(), new RunningStats(),
+                                new RunningStats(), new RunningStats(), new RunningStats() });
+                add(stats, 0, outcome.exact());
+                add(stats, 1, outcome.tabulated());
+            }
+        } catch (ExecutionException e) {
+            System.err.println("Error al validar el kernel: " + e.getCause().getMessage());
+            return;
+        } finally {
+            executor.shutdownNow();
+        }
+
+        double zombieMeanDeviation = 0;
+        double timeMeanDeviation = 0;
+        double velocityMeanDeviation = 0;
+        System.out.println();
+        for (Map.Entry<SweepPoint, RunningStats[]> entry : points.entrySet()) {
+            RunningStats[] stats = entry.getValue();
+            System.out.println(String.format(
+                    "%s: zombies %.4f / %.4f, tiempo %.2f / %.2f, velocidad %.4f / %.4f",
+                    entry.getKey().describe(),
+                    stats[0].getMean(), stats[1].getMean(),
+                    stats[2].getMean(), stats[3].getMean(),
+                    stats[4].getMean(), stats[5].getMean()));
+            zombieMeanDeviation = Math.max(zombieMeanDeviation, Math.abs(stats[0].getMean() - stats[1].getMean()));
+            timeMeanDeviation = Math.max(timeMeanDeviation, Math.abs(stats[2].getMean() - stats[3].getMean()));
+            velocityMeanDeviation = Math.max(velocityMeanDeviation,
+                    Math.abs(stats[4].getMean() - stats[5].getMean()));
+        }
+        System.out.println(String.format(
+                "Máxima diferencia por realización: zombies %.4f, tiempo %.2f, velocidad %.4f",
+                zombieDeviation, timeDeviation, velocityDeviation));
+        System.out.println(String.format(
+                "Máxima diferencia entre medias: zombies %.4f, tiempo %.2f, velocidad %.4f",
+                zombieMeanDeviation, timeMeanDeviation, velocityMeanDeviation));
+    }
+
+    private static FinishState simulate(SweepJob job, Config config, TabulatedKernel tabulated) {
+        Config configCopy = App.jobConfig(config, job);
+        configCopy.setTabulatedKernel(tabulated);
+        return new Simulation(configCopy, job.realization()).run();
+    }
+
+    private static void add(RunningStats[] stats, int kernel, FinishState result) {
+        stats[kernel].add(zombieFraction(result));
+        stats[2 + kernel].add(result.time());
+        stats[4 + kernel].add(result.averageVelocity());
+    }
+
+    private static double zombieFraction(FinishState result) {
+        return (double) result.num_zombies() / (result.num_zombies() + result.num_humans());
+    }
+}
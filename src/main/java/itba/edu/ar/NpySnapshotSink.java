@@ -0,0 +1,150 @@
+package itba.edu.ar;
+
+import itba.edu.ar.simulation.SimulationSnapshot;
+import itba.edu.ar.simulation.SnapshotSink;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// Streams the frames of one realization as typed .npy columns
+public class NpySnapshotSink implements SnapshotSink {
+    private final List<NpyWriter> writers = new ArrayList<>();
+    // Every file opened, still listed after close
+    private final List<Path> files = new ArrayList<>();
+    private final int agents;
+    private final long[] resumeFrom;
+
+    // Positions
+    private NpyWriter time;
+    private NpyWriter type;
+    private NpyWriter x;
+    private NpyWriter y;
+    private NpyWriter radius;
+
+    // Velocities and percentages
+    private NpyWriter velTime;
+    private NpyWriter zombiePercentage;
+    private NpyWriter averageVelocity;
+
+    public NpySnapshotSink(String posDirectory, String velDirectory, int agents) throws IOException {
+        this(posDirectory, velDirectory, agents, null);
+    }
+
+    public NpySnapshotSink(String posDirectory, String velDirectory, int agents, long[] resumeFrom)
+            throws IOException {
+        this.agents = agents;
+        this.resumeFrom = resumeFrom;
+        int files = (posDirectory != null ? 5 : 0) + (velDirectory != null ? 3 : 0);
+        if (resumeFrom != null && resumeFrom.length != files) {
+            throw new IOException("Se esperaban " + files + " posiciones npy para retomar, hay " + resumeFrom.length);
+        }
+        try {
+            if (posDirectory != null) {
+                Path directory = Files.createDirectories(Path.of(posDirectory));
+                time = open(directory.resolve("time.npy"), NpyWriter.FLOAT64, 0);
+                type = open(directory.resolve("type.npy"), NpyWriter.INT8, agents);
+                x = open(directory.resolve("x.npy"), NpyWriter.FLOAT64, agents);
+                y = open(directory.resolve("y.npy"), NpyWriter.FLOAT64, agents);
+                radius = open(directory.resolve("radius.npy"), NpyWriter.FLOAT64, agents);
+            }
+            if (velDirectory != null) {
+                Path directory = Files.createDirectories(Path.of(velDirectory));
+                velTime = open(directory.resolve("time.npy"), NpyWriter.FLOAT64, 0);
+                zombiePercentage = open(directory.resolve("zombiePercentage.npy"), NpyWriter.FLOAT64, 0);
+                averageVelocity = open(directory.resolve("averageVelocity.npy"), NpyWriter.FLOAT64, 0);
+            }
+        } catch (IOException e) {
+            try {
+                closeWriters();
+            } catch (IOException closing) {
+                e.addSuppressed(closing);
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void accept(SimulationSnapshot snapshot) throws IOException {
+        if (snapshot.size() != agents) {
+            throw new IOException("Se esperaban " + agents + " agentes por cuadro, hay " + snapshot.size());
+        }
+
+        if (time != null) {
+            time.writeDouble(snapshot.getTime());
+            for (int id = 0; id < agents; id++) {
+                type.writeByte((byte) snapshot.getType(id).ordinal());
+                x.writeDouble(snapshot.getX(id));
+                y.writeDouble(snapshot.getY(id));
+                radius.writeDouble(snapshot.getRadius(id));
+            }
+        }
+    }
+
+    @Override
+    public void acceptStatistics(double time, double zombiePercentage, double averageVelocity) throws IOException {
+        if (velTime != null) {
+            velTime.writeDouble(time);
+            this.zombiePercentage.writeDouble(zombiePercentage);
+            this.averageVelocity.writeDouble(averageVelocity);
+        }
+    }
+
+    // Number of values in each file, in the order they were opened
+    @Override
+    public long[] checkpoint() throws IOException {
+        long[] positions = new long[writers.size()];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = writers.get(i).checkpoint();
+        }
+        return positions;
+    }
+
+    @Override
+    public long bytesWritten() {
+        long bytes = 0;
+        for (Path file : files) {
+            try {
+                bytes += Files.size(file);
+            } catch (IOException e) {
+                // Deleted by someone else, nothing left to count
+            }
+        }
+        return bytes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closeWriters();
+    }
+
+    // Closes every writer opened so far, even if some of them fail
+    private void closeWriters() throws IOException {
+        IOException failure = null;
+        for (NpyWriter writer : writers) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        writers.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private NpyWriter open(Path path, String descr, int rowLength) throws IOException {
+        long resumePosition = resumeFrom == null ? -1 : resumeFrom[writers.size()];
+        NpyWriter writer = new NpyWriter(path, descr, rowLength, resumePosition);
+        writers.add(writer);
+        files.add(path);
+        return writer;
+    }
+}
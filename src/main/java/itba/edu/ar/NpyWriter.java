@@ -0,0 +1,126 @@
+package itba.edu.ar;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Streams one little-endian column to a NumPy .npy file (format 1.0)
+public class NpyWriter implements Closeable {
+    public static final String FLOAT64 = "<f8";
+    public static final String INT8 = "|i1";
+
+    // Magic string, version, header length and header dictionary, padded to 64 bytes
+    private static final int HEADER_SIZE = 128;
+    private static final byte[] MAGIC = { (byte) 0x93, 'N', 'U', 'M', 'P', 'Y', 1, 0 };
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final String descr;
+    private final int rowLength;
+    private long values;
+
+    public NpyWriter(Path path, String descr, int rowLength) throws IOException {
+        this(path, descr, rowLength, -1);
+    }
+
+    public NpyWriter(Path path, String descr, int rowLength, long resumeFrom) throws IOException {
+        this.channel = resumeFrom < 0
+                ? FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)
+                : FileChannel.open(path, StandardOpenOption.WRITE);
+        this.buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+        this.descr = descr;
+        this.rowLength = rowLength;
+        try {
+            if (resumeFrom < 0) {
+                writeHeader(0);
+                channel.position(HEADER_SIZE);
+            } else {
+                long end = HEADER_SIZE + resumeFrom * itemSize();
+                if (channel.size() < end) {
+                    throw new IOException(path + " is shorter than its checkpoint");
+                }
+                channel.truncate(end);
+                channel.position(end);
+                values = resumeFrom;
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public void writeDouble(double value) throws IOException {
+        if (buffer.remaining() < Double.BYTES) {
+            flush();
+        }
+        buffer.putDouble(value);
+        values++;
+    }
+
+    public void writeByte(byte value) throws IOException {
+        if (!buffer.hasRemaining()) {
+            flush();
+        }
+        buffer.put(value);
+        values++;
+    }
+
+    // Writes out every value so far and updates the header, so the file is complete up to this point even if it is
+    // never closed
+    public long checkpoint() throws IOException {
+        flush();
+        writeHeader(rowLength == 0 ? values : values / rowLength);
+        return values;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+            long rows = rowLength == 0 ? values : values / rowLength;
+            writeHeader(rows);
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private int itemSize() {
+        return FLOAT64.equals(descr) ? Double.BYTES : Byte.BYTES;
+    }
+
+    private void writeHeader(long rows) throws IOException {
+        String shape = rowLength == 0 ? "(" + rows + ",)" : "(" + rows + ", " + rowLength + ")";
+        StringBuilder header = new StringBuilder("{'descr': '" + descr + "', 'fortran_order': False, 'shape': "
+                + shape + ", }");
+        int headerLength = HEADER_SIZE - MAGIC.length - Short.BYTES;
+        while (header.length() < headerLength - 1) {
+            header.append(' ');
+        }
+        header.append('\n');
+
+        ByteBuffer headerBuffer = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        headerBuffer.put(MAGIC);
+        headerBuffer.putShort((short) headerLength);
+        headerBuffer.put(header.toString().getBytes(StandardCharsets.US_ASCII));
+        headerBuffer.flip();
+
+        long position = 0;
+        while (headerBuffer.hasRemaining()) {
+            position += channel.write(headerBuffer, position);
+        }
+    }
+}
@@ -5,6 +5,8 @@ import itba.edu.ar.simulation.*;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 
 public class OutputHandler {
@@ -16,7 +18,9 @@ public class OutputHandler {
     }
 
     public static void saveFinishStates(List<FinishState> finishStates, Config config) throws IOException {
-        String filename = config.getOutputDirectory() + "/finish_states_" + config.getProbabilityInfection() + ".csv";
+        String filename = config.getOutputDirectory() + "/finish_states_" + pointName(config) + ".csv";
+        OutputWriteEvent event = new OutputWriteEvent();
+        event.begin();
         FileWriter csvWriter = new FileWriter(filename);
 
         csvWriter.append("Id,Time,NumZombies,NumHumans,averageVelocity\n");
@@ -32,69 +36,117 @@ public class OutputHandler {
 
         csvWriter.flush();
         csvWriter.close();
+        commit(event, filename, id - 1);
     }
 
-    public static void saveVelocitiesAndPercentages(String outputDirectory, Simulation simulation) throws IOException {
-        List<SimulationSnapshot> snapshots = simulation.getSnapshots();
-        String velFilename;
-        if (simulation.getConfig().isOrianaAnalysis()) {    
-            velFilename = outputDirectory + "/realization_" + simulation.getConfig().getProbabilityInfection() + "_"
-                    + simulation.getRealizationNumber() + "_" + simulation.getConfig().getInitialHumans() + "humans_vel.csv";
-        } else {
-            velFilename = outputDirectory + "/realization_" + simulation.getConfig().getProbabilityInfection() + "_"
-                    + simulation.getRealizationNumber() + "_vel.csv";
+    // Realizations per point, why they stopped and their confidence intervals
+    public static void saveRealizationSummary(List<SweepScheduler.PointProgress> points, Config config)
+            throws IOException {
+        String filename = config.getOutputDirectory() + "/adaptive_realizations.csv";
+        double confidence = config.getAdaptiveRealizations().getConfidence();
+        OutputWriteEvent event = new OutputWriteEvent();
+        event.begin();
+        try (FileWriter csvWriter = new FileWriter(filename)) {
+            String parameters = config.getSweep() == null ? "InitialHumans,Probability"
+                    : String.join(",", config.getSweep().getParameters().keySet());
+            csvWriter.append(parameters + ",Realizations,StoppingReason,"
+                    + "ZombieFraction,ZombieFractionHalfWidth,FinishTime,FinishTimeHalfWidth,"
+                    + "VelocityRealizations,AverageVelocity,AverageVelocityHalfWidth\n");
+            for (SweepScheduler.PointProgress point : points) {
+                for (Number value : point.getPoint().values().values()) {
+                    csvWriter.append(value + ",");
+                }
+                csvWriter.append(point.getRealizations() + "," + point.getStoppingReason() + ","
+                        + point.getZombieFraction().getMean() + ","
+                        + point.getZombieFraction().halfWidth(confidence) + ","
+                        + point.getFinishTime().getMean() + ","
+                        + point.getFinishTime().halfWidth(confidence) + ","
+                        + point.getAverageVelocity().getCount() + ","
+                        + point.getAverageVelocity().getMean() + ","
+                        + point.getAverageVelocity().halfWidth(confidence) + "\n");
+            }
         }
-        FileWriter velCsvWriter = new FileWriter(velFilename);
-
-        // Write header
-        velCsvWriter.append("Time,zombiePercentage,averageVelocity\n");
+        commit(event, filename, points.size());
+    }
 
-        // Write data from each snapshot
-        for (SimulationSnapshot snapshot : snapshots) {
-            velCsvWriter.append(snapshot.getTime() + ",");
-            velCsvWriter.append(snapshot.zombiePercentage() + ",");
-            velCsvWriter.append(snapshot.averageVelocity() + "\n");
+    static void commit(OutputWriteEvent event, String filename, int rows) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.file = filename;
+            event.rows = rows;
+            event.commit();
         }
+    }
 
-        velCsvWriter.flush();
-        velCsvWriter.close();
+    // Per-step output of a realization in the configured format
+    public static SnapshotSink createSnapshotSink(Config config, int realizationNumber) throws IOException {
+        return createSnapshotSink(config, realizationNumber, null);
     }
 
-    public static void savePositions(String outputDirectory, Simulation simulation) throws IOException {
-        List<SimulationSnapshot> snapshots = simulation.getSnapshots();
-        String posFilename = outputDirectory + "/realization_" + simulation.getConfig().getProbabilityInfection() + "_"
-                + simulation.getRealizationNumber() + ".csv";
-        FileWriter posCsvWriter = new FileWriter(posFilename);
-
-        // Write header
-        posCsvWriter.append("Time,AgentID,AgentType,PosX,PosY,Radius\n");
-
-        // Write data from each snapshot
-        for (SimulationSnapshot snapshot : snapshots) {
-            double time = snapshot.getTime();
-            for (Agent agent : snapshot.getAgents()) {
-                posCsvWriter.append(time + ",");
-                posCsvWriter.append(agent.getId() + ",");
-                posCsvWriter.append(agent.getType().toString() + ",");
-                posCsvWriter.append(agent.getPosition().getX() + ",");
-                posCsvWriter.append(agent.getPosition().getY() + ",");
-                posCsvWriter.append(agent.getRadius() + "\n");
-            }
+    // resumeFrom continues the files of a resumed run, null starts new ones
+    public static SnapshotSink createSnapshotSink(Config config, int realizationNumber, long[] resumeFrom)
+            throws IOException {
+        if (!config.isSavePositions() && !config.isSaveVelocitiesAndPercentages()) {
+            return NoOpSnapshotSink.INSTANCE;
+        }
+        String outputDirectory = config.getOutputDirectory();
+        String positions = config.isSavePositions()
+                ? positionsName(outputDirectory, config, realizationNumber)
+                : null;
+        String velocities = config.isSaveVelocitiesAndPercentages()
+                ? velocitiesName(outputDirectory, config, realizationNumber)
+                : null;
+
+        switch (config.getOutputFormat()) {
+            case Config.OUTPUT_FORMAT_CSV:
+                return new CsvSnapshotSink(positions == null ? null : positions + ".csv",
+                        velocities == null ? null : velocities + ".csv", resumeFrom);
+            case Config.OUTPUT_FORMAT_NPY:
+                return new NpySnapshotSink(positions, velocities,
+                        config.getInitialHumans() + config.getInitialZombies(), resumeFrom);
+            default:
+                throw new IllegalArgumentException("Formato de salida desconocido: " + config.getOutputFormat());
         }
-
-        posCsvWriter.flush();
-        posCsvWriter.close();
     }
 
-    public static void saveResults(Simulation simulation, String outputDirectory) throws IOException {
-        // Save velocities and percentages
-        if (simulation.getConfig().isSaveVelocitiesAndPercentages()) {
-            saveVelocitiesAndPercentages(outputDirectory, simulation);
+    // Files, or npy directories, a realization writes, relative to the output directory
+    public static List<String> outputNames(Config config, int realizationNumber) {
+        String extension = Config.OUTPUT_FORMAT_CSV.equals(config.getOutputFormat()) ? ".csv" : "";
+        List<String> names = new ArrayList<>();
+        if (config.isSavePositions()) {
+            names.add(Path.of(positionsName(config.getOutputDirectory(), config, realizationNumber)).getFileName()
+                    + extension);
+        }
+        if (config.isSaveVelocitiesAndPercentages()) {
+            names.add(Path.of(velocitiesName(config.getOutputDirectory(), config, realizationNumber)).getFileName()
+                    + extension);
         }
+        return names;
+    }
 
-        // Save positions
-        if (simulation.getConfig().isSavePositions()) {
-            savePositions(outputDirectory, simulation);
+    public static String velocitiesName(String outputDirectory, Config config, int realizationNumber) {
+        if (config.isOrianaAnalysis()) {
+            return outputDirectory + "/realization_" + pointName(config) + "_"
+                    + realizationNumber + "_" + config.getInitialHumans() + "humans_vel";
         }
+        return outputDirectory + "/realization_" + pointName(config) + "_"
+                + realizationNumber + "_vel";
+    }
+
+    public static String positionsName(String outputDirectory, Config config, int realizationNumber) {
+        return outputDirectory + "/realization_" + pointName(config) + "_"
+                + realizationNumber;
+    }
+
+    // Includes the humans, so points of a sweep over populations do not share checkpoints
+    public static String checkpointName(String outputDirectory, Config config, int realizationNumber) {
+        return outputDirectory + "/checkpoint_" + pointName(config) + "_" + realizationNumber + "_"
+                + config.getInitialHumans() + "humans.bin";
+    }
+
+    // The probability, or the swept values in a declarative sweep
+    private static String pointName(Config config) {
+        return config.getSweepLabel() == null ? String.valueOf(config.getProbabilityInfection())
+                : config.getSweepLabel();
     }
 }
@@ -0,0 +1,23 @@
+package itba.edu.ar;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// JDK Flight Recorder event for a summary file written by OutputHandler at the end of a sweep
+@Name("itba.edu.ar.OutputWrite")
+@Label("Output Write")
+@Description("Writing one summary file of a sweep")
+@Category({ "Zombies", "Output" })
+@StackTrace(false)
+public class OutputWriteEvent extends Event {
+    @Label("File")
+    String file;
+
+    @Label("Rows")
+    @Description("Realizations or parameter points written")
+    int rows;
+}
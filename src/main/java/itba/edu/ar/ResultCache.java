@@ -0,0 +1,184 @@
+package itba.edu.ar;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import itba.edu.ar.simulation.Config;
+import itba.edu.ar.simulation.FinishState;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+// Realizations already computed in an output directory, so a sweep can skip them
+public class ResultCache {
+    private static final String MANIFEST = "manifest.csv";
+    private static final String HEADER = "Key,InitialHumans,Probability,Realization,Status,Steps,Time,NumZombies,"
+            + "NumHumans,averageVelocity,Outputs";
+    private static final String STARTED = "started";
+    private static final String DONE = "done";
+    // Bump on any change to the engine or the outputs that changes results, so older ones are not reused
+    static final int ENGINE_VERSION = 1;
+
+    // Settings that shape the sweep or the process but not a single realization
+    private static final List<String> SWEEP_SETTINGS = List.of("currentTime", "probabilities",
+            "initialHumansList", "realizations", "outputDirectory", "saveFinishStates",
+            "minTimeToCalculateVelocity", "stepThreads", "adaptiveRealizations", "checkpointInterval",
+            "reuseResults", "validateForceKernel", "distanceKernel", "sweep", "sweepLabel");
+
+    // A completed realization
+    public record Entry(String key, long steps, FinishState finishState, List<String> outputs) {
+    }
+
+    private final Path directory;
+    private final Map<String, Entry> completed = new HashMap<>();
+    // Key of the last row that listed each output file
+    private final Map<String, String> owners = new HashMap<>();
+
+    private ResultCache(Path directory) {
+        this.directory = directory;
+    }
+
+    // Reads the manifest of an output directory, if it has one
+    public static ResultCache open(String outputDirectory) throws IOException {
+        ResultCache cache = new ResultCache(Path.of(outputDirectory));
+        Path manifest = cache.directory.resolve(MANIFEST);
+        if (!Files.exists(manifest)) {
+            return cache;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(manifest, StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            while ((line = reader.readLine()) != null) {
+                cache.load(line);
+            }
+        }
+        return cache;
+    }
+
+    // Appends the rows of a manifest from another directory, whose outputs have been moved into this one, so its
+    // results count here as well
+    public static void mergeManifest(Path manifest, Path outputDirectory) throws IOException {
+        if (!Files.exists(manifest)) {
+            return;
+        }
+        List<String> lines = Files.readAllLines(manifest, StandardCharsets.UTF_8);
+        Path target = outputDirectory.resolve(MANIFEST);
+        boolean exists = Files.exists(target);
+        try (Writer writer = new BufferedWriter(Files.newBufferedWriter(target, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND))) {
+            if (!exists) {
+                writer.append(HEADER).append('\n');
+            }
+            for (String line : lines.subList(Math.min(1, lines.size()), lines.size())) {
+                writer.append(line).append('\n');
+            }
+        }
+    }
+
+    // Key of a realization: SHA-256 of the configuration it runs with, without the settings that only steer the
+    // sweep, the realization number and the engine version
+    public static String key(Config config, int realizationNumber) {
+        JsonObject settings = new Gson().toJsonTree(config).getAsJsonObject();
+        for (String setting : SWEEP_SETTINGS) {
+            settings.remove(setting);
+        }
+        settings.addProperty("realization", realizationNumber);
+        settings.addProperty("engineVersion", ENGINE_VERSION);
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(settings.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // The completed realization with this key, or null if it has to run
+    public synchronized Entry lookup(String key) {
+        Entry entry = completed.get(key);
+        if (entry == null) {
+            return null;
+        }
+        for (String output : entry.outputs()) {
+            if (!key.equals(owners.get(output)) || !Files.exists(directory.resolve(output))) {
+                return null;
+            }
+        }
+        return entry;
+    }
+
+    // Records that a realization is about to write its outputs, which stops counting any earlier result that wrote
+    // the same files
+    public synchronized void started(String key, Config config, int realizationNumber, List<String> outputs)
+            throws IOException {
+        append(key, config, realizationNumber, STARTED, -1, null, outputs);
+    }
+
+    // Records a completed realization
+    public synchronized void completed(String key, Config config, int realizationNumber, long steps,
+            FinishState finishState, List<String> outputs) throws IOException {
+        append(key, config, realizationNumber, DONE, steps, finishState, outputs);
+    }
+
+    private void append(String key, Config config, int realizationNumber, String status, long steps,
+            FinishState finishState, List<String> outputs) throws IOException {
+        Path manifest = directory.resolve(MANIFEST);
+        boolean exists = Files.exists(manifest);
+        try (Writer writer = new BufferedWriter(Files.newBufferedWriter(manifest, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND))) {
+            if (!exists) {
+                writer.append(HEADER).append('\n');
+            }
+            writer.append(key + "," + config.getInitialHumans() + "," + config.getProbabilityInfection() + ","
+                    + realizationNumber + "," + status + "," + steps + ",");
+            if (finishState != null) {
+                writer.append(finishState.time() + "," + finishState.num_zombies() + ","
+                        + finishState.num_humans() + "," + finishState.averageVelocity());
+            } else {
+                writer.append(",,,");
+            }
+            writer.append("," + String.join(";", outputs) + "\n");
+        }
+        register(key, status, steps, finishState, outputs);
+    }
+
+    private void load(String line) {
+        String[] fields = line.split(",", -1);
+        if (fields.length != 11) {
+            // Row cut short by a process that was killed while writing it
+            return;
+        }
+        List<String> outputs = fields[10].isEmpty() ? List.of() : Arrays.asList(fields[10].split(";"));
+        try {
+            FinishState finishState = null;
+            if (DONE.equals(fields[4])) {
+                finishState = new FinishState(Double.parseDouble(fields[6]), Integer.parseInt(fields[7]),
+                        Integer.parseInt(fields[8]), Double.parseDouble(fields[9]));
+            }
+            register(fields[0], fields[4], Long.parseLong(fields[5]), finishState, outputs);
+        } catch (NumberFormatException e) {
+            // Same as a row cut short
+        }
+    }
+
+    private void register(String key, String status, long steps, FinishState finishState, List<String> outputs) {
+        for (String output : outputs) {
+            owners.put(output, key);
+        }
+        if (DONE.equals(status)) {
+            completed.put(key, new Entry(key, steps, finishState, List.copyOf(outputs)));
+        } else {
+            completed.remove(key);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package itba.edu.ar;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// One of count parts of a sweep, so several processes that share a filesystem can run it without talking to each
+// other
+public record Shard(int index, int count) {
+    private static final String DIRECTORY_PREFIX = "shard_";
+    // Written by a shard whose jobs all finished, removed when it starts again
+    static final String COMPLETE_MARKER = "shard_complete";
+
+    public Shard {
+        if (count < 1 || index < 1 || index > count) {
+            throw new IllegalArgumentException("Shard inválido: " + index + "/" + count);
+        }
+    }
+
+    public static Shard parse(String spec) {
+        String[] parts = spec.split("/");
+        try {
+            if (parts.length == 2) {
+                return new Shard(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+            }
+        } catch (NumberFormatException e) {
+            // Same as a malformed spec
+        }
+        throw new IllegalArgumentException("Shard inválido, se espera i/n: " + spec);
+    }
+
+    // The jobs of this shard, in sweep order
+    public List<SweepJob> select(List<SweepJob> jobs, boolean byPoint) {
+        List<SweepJob> selected = new ArrayList<>();
+        int points = -1;
+        SweepPoint last = null;
+        for (int i = 0; i < jobs.size(); i++) {
+            SweepJob job = jobs.get(i);
+            if (!job.point().equals(last)) {
+                last = job.point();
+                points++;
+            }
+            if ((byPoint ? points : i) % count == index - 1) {
+                selected.add(job);
+            }
+        }
+        return selected;
+    }
+
+    // Output directory of this shard
+    public String directory(String outputDirectory) {
+        return Path.of(outputDirectory, DIRECTORY_PREFIX + index + "_of_" + count).toString();
+    }
+
+    // Records in the output directory of this shard that all its jobs finished
+    public void markComplete(String outputDirectory) throws IOException {
+        Files.writeString(Path.of(outputDirectory, COMPLETE_MARKER), index + "/" + count + "\n");
+    }
+
+    // Removes the marker of an earlier run of this shard, before it runs again
+    public void clearComplete(String outputDirectory) throws IOException {
+        Files.deleteIfExists(Path.of(outputDirectory, COMPLETE_MARKER));
+    }
+
+    // Whether a directory name is the output of a shard
+    static boolean isDirectory(String name) {
+        return name.matches(DIRECTORY_PREFIX + "\\d+_of_\\d+");
+    }
+}
@@ -0,0 +1,173 @@
+package itba.edu.ar;
+
+import itba.edu.ar.simulation.Config;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Combines the output directories of the Shards of a sweep into the layout a single run writes
+public class ShardMerger {
+    private static final String FINISH_STATES_PREFIX = "finish_states_";
+    private static final String REALIZATION_SUMMARY = "adaptive_realizations.csv";
+    private static final String MANIFEST = "manifest.csv";
+    private static final String CHECKPOINT_PREFIX = "checkpoint_";
+
+    public static void merge(Config config) throws IOException {
+        Path outputDirectory = Path.of(config.getOutputDirectory());
+        List<Path> shards = shardDirectories(outputDirectory);
+        System.out.println("Uniendo " + shards.size() + " shards en " + outputDirectory);
+
+        Map<String, List<String>> finishStates = new LinkedHashMap<>();
+        List<String> summary = new ArrayList<>();
+        String summaryHeader = null;
+        int moved = 0;
+        for (Path shard : shards) {
+            List<Path> entries;
+            try (Stream<Path> list = Files.list(shard)) {
+                entries = list.sorted().collect(Collectors.toList());
+            }
+            for (Path entry : entries) {
+                String name = entry.getFileName().toString();
+                if (name.startsWith(FINISH_STATES_PREFIX)) {
+                    List<String> lines = Files.readAllLines(entry, StandardCharsets.UTF_8);
+                    finishStates.computeIfAbsent(name, key -> new ArrayList<>())
+                            .addAll(lines.subList(Math.min(1, lines.size()), lines.size()));
+                } else if (name.equals(REALIZATION_SUMMARY)) {
+                    List<String> lines = Files.readAllLines(entry, StandardCharsets.UTF_8);
+                    if (!lines.isEmpty()) {
+                        summaryHeader = lines.get(0);
+                        summary.addAll(lines.subList(1, lines.size()));
+                    }
+                } else if (!name.equals(MANIFEST) && !name.equals(Shard.COMPLETE_MARKER)) {
+                    move(entry, outputDirectory.resolve(name));
+                    moved++;
+                }
+            }
+            // After the outputs, so the rows point at files that are already there
+            ResultCache.mergeManifest(shard.resolve(MANIFEST), outputDirectory);
+        }
+
+        for (Map.Entry<String, List<String>> entry : finishStates.entrySet()) {
+            writeFinishStates(outputDirectory.resolve(entry.getKey()), entry.getValue());
+        }
+        if (summaryHeader != null) {
+            List<String> lines = new ArrayList<>();
+            lines.add(summaryHeader);
+            lines.addAll(sweepOrder(summary, SweepPlan.points(config)));
+            Files.write(outputDirectory.resolve(REALIZATION_SUMMARY), lines, StandardCharsets.UTF_8);
+        }
+
+        for (Path shard : shards) {
+            Files.deleteIfExists(shard.resolve(MANIFEST));
+            for (String name : finishStates.keySet()) {
+                Files.deleteIfExists(shard.resolve(name));
+            }
+            Files.deleteIfExists(shard.resolve(REALIZATION_SUMMARY));
+            Files.deleteIfExists(shard.resolve(Shard.COMPLETE_MARKER));
+            Files.deleteIfExists(shard);
+        }
+        System.out.println("Salidas movidas: " + moved + ", archivos de estados finales: " + finishStates.size());
+    }
+
+    // Shard directories of the output directory, checking that every shard of the sweep is there and done
+    private static List<Path> shardDirectories(Path outputDirectory) throws IOException {
+        List<Path> shards;
+        try (Stream<Path> list = Files.list(outputDirectory)) {
+            shards = list.filter(path -> Files.isDirectory(path) && Shard.isDirectory(path.getFileName().toString()))
+                    .collect(Collectors.toList());
+        }
+        if (shards.isEmpty()) {
+            throw new IOException("No hay shards en " + outputDirectory);
+        }
+
+        Map<Integer, Path> byIndex = new HashMap<>();
+        int count = -1;
+        for (Path shard : shards) {
+            String[] parts = shard.getFileName().toString().split("_");
+            int index = Integer.parseInt(parts[1]);
+            int shardCount = Integer.parseInt(parts[3]);
+            if (count != -1 && shardCount != count) {
+                throw new IOException("Hay shards de barridos divididos en " + count + " y en " + shardCount);
+            }
+            count = shardCount;
+            byIndex.put(index, shard);
+            if (!Files.exists(shard.resolve(Shard.COMPLETE_MARKER))) {
+                throw new IOException("El shard " + index + "/" + count + " no terminó todas sus realizaciones");
+            }
+            try (Stream<Path> list = Files.list(shard)) {
+                if (list.anyMatch(path -> path.getFileName().toString().startsWith(CHECKPOINT_PREFIX))) {
+                    throw new IOException("El shard " + index + "/" + count + " tiene realizaciones sin terminar");
+                }
+            }
+        }
+        for (int index = 1; index <= count; index++) {
+            if (!byIndex.containsKey(index)) {
+                throw new IOException("Falta el shard " + index + "/" + count);
+            }
+        }
+        return byIndex.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .map(Map.Entry::getValue)
+                .collect(Collectors.toList());
+    }
+
+    // Moves a file or an npy directory, replacing what a previous run left
+    private static void move(Path source, Path target) throws IOException {
+        if (Files.isDirectory(target)) {
+            try (Stream<Path> walk = Files.walk(target)) {
+                for (Path path : walk.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                    Files.delete(path);
+                }
+            }
+        }
+        Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    // Writes finish state rows with their ids numbered from 1 again, as OutputHandler.saveFinishStates does
+    private static void writeFinishStates(Path file, List<String> rows) throws IOException {
+        OutputWriteEvent event = new OutputWriteEvent();
+        event.begin();
+        List<String> lines = new ArrayList<>();
+        lines.add("Id,Time,NumZombies,NumHumans,averageVelocity");
+        int id = 1;
+        for (String row : rows) {
+            lines.add(id++ + row.substring(row.indexOf(',')));
+        }
+        Files.write(file, lines, StandardCharsets.UTF_8);
+        OutputHandler.commit(event, file.toString(), rows.size());
+    }
+
+    // Summary rows in the order of the points whose values they start with
+    private static List<String> sweepOrder(List<String> rows, List<SweepPoint> points) {
+        Map<String, Integer> order = new HashMap<>();
+        for (int i = 0; i < points.size(); i++) {
+            order.put(prefix(points.get(i)), i);
+        }
+        List<String> sorted = new ArrayList<>(rows);
+        sorted.sort(Comparator.comparingInt(row -> order.entrySet().stream()
+                .filter(entry -> row.startsWith(entry.getKey()))
+                .mapToInt(Map.Entry::getValue)
+                .findFirst()
+                .orElse(points.size())));
+        return sorted;
+    }
+
+    private static String prefix(SweepPoint point) {
+        StringBuilder prefix = new StringBuilder();
+        for (Number value : point.values().values()) {
+            prefix.append(value).append(',');
+        }
+        return prefix.toString();
+    }
+}
@@ -0,0 +1,5 @@
+package itba.edu.ar;
+
+// One realization of one point of the parameter sweep
+public record SweepJob(SweepPoint point, int realization) {
+}
@@ -0,0 +1,152 @@
+package itba.edu.ar;
+
+import itba.edu.ar.simulation.Simulation;
+import itba.edu.ar.simulation.SnapshotSink;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Publishes the progress and throughput of a sweep as the MBean NAME, so it can be watched with JConsole,
+// VisualVM or any JMX client while it runs
+public class SweepMonitor implements SweepMonitorMBean {
+    public static final String NAME = "itba.edu.ar:type=SweepMonitor";
+
+    private final SweepScheduler scheduler;
+    private final AtomicInteger completed;
+    private final Worker[] workers;
+
+    // Output of the realizations already finished
+    private long finishedBytes;
+
+    // What one worker has done so far
+    private static class Worker {
+        private long steps;
+        private long busyNanos;
+        private Simulation simulation;
+        private SnapshotSink sink;
+        // A resumed realization starts from the step of its checkpoint
+        private long startStep;
+        private long startNanos;
+    }
+
+    public SweepMonitor(SweepScheduler scheduler, AtomicInteger completed, int workers) {
+        this.scheduler = scheduler;
+        this.completed = completed;
+        this.workers = new Worker[workers];
+        for (int i = 0; i < workers; i++) {
+            this.workers[i] = new Worker();
+        }
+    }
+
+    // Registers the MBean in the platform MBean server
+    public void register() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(NAME);
+        if (server.isRegistered(name)) {
+            server.unregisterMBean(name);
+        }
+        server.registerMBean(this, name);
+    }
+
+    public void unregister() throws JMException {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(NAME));
+    }
+
+    // Called by a worker before it runs a realization
+    public synchronized void started(int worker, Simulation simulation, SnapshotSink sink) {
+        Worker state = workers[worker];
+        state.simulation = simulation;
+        state.sink = sink;
+        state.startStep = simulation.getStep();
+        state.startNanos = System.nanoTime();
+    }
+
+    // Called by a worker once the realization it was running is over and its sink is closed
+    public synchronized void finished(int worker) {
+        Worker state = workers[worker];
+        if (state.simulation == null) {
+            return;
+        }
+        state.steps += state.simulation.getStep() - state.startStep;
+        state.busyNanos += System.nanoTime() - state.startNanos;
+        finishedBytes += state.sink.bytesWritten();
+        state.simulation = null;
+        state.sink = null;
+    }
+
+    @Override
+    public int getCompleted() {
+        return completed.get();
+    }
+
+    @Override
+    public int getRunning() {
+        return scheduler.getRunning();
+    }
+
+    @Override
+    public int getQueued() {
+        return scheduler.getQueued();
+    }
+
+    @Override
+    public int getScheduled() {
+        return scheduler.getScheduled();
+    }
+
+    @Override
+    public synchronized double[] getStepsPerSecond() {
+        long now = System.nanoTime();
+        double[] stepsPerSecond = new double[workers.length];
+        for (int i = 0; i < workers.length; i++) {
+            long nanos = busyNanos(workers[i], now);
+            stepsPerSecond[i] = nanos == 0 ? 0 : steps(workers[i]) * 1e9 / nanos;
+        }
+        return stepsPerSecond;
+    }
+
+    @Override
+    public synchronized double getAverageStepMillis() {
+        long now = System.nanoTime();
+        long steps = 0;
+        long nanos = 0;
+        for (Worker worker : workers) {
+            steps += steps(worker);
+            nanos += busyNanos(worker, now);
+        }
+        return steps == 0 ? 0 : nanos / 1e6 / steps;
+    }
+
+    @Override
+    public synchronized long getSnapshotMemoryBytes() {
+        long bytes = 0;
+        for (Worker worker : workers) {
+            if (worker.simulation != null) {
+                bytes += worker.simulation.getSnapshotBytes();
+            }
+        }
+        return bytes;
+    }
+
+    @Override
+    public synchronized long getBytesWritten() {
+        long bytes = finishedBytes;
+        for (Worker worker : workers) {
+            if (worker.sink != null) {
+                bytes += worker.sink.bytesWritten();
+            }
+        }
+        return bytes;
+    }
+
+    private static long steps(Worker worker) {
+        return worker.steps + (worker.simulation == null ? 0 : worker.simulation.getStep() - worker.startStep);
+    }
+
+    private static long busyNanos(Worker worker, long now) {
+        return worker.busyNanos + (worker.simulation == null ? 0 : now - worker.startNanos);
+    }
+}
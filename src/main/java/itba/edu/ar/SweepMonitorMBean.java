@@ -0,0 +1,28 @@
+package itba.edu.ar;
+
+// Live state of a sweep, published over JMX by SweepMonitor
+public interface SweepMonitorMBean {
+    // Realizations finished or reused from an earlier sweep
+    int getCompleted();
+
+    // Realizations being simulated
+    int getRunning();
+
+    // Realizations waiting for a worker
+    int getQueued();
+
+    // Realizations scheduled so far, more can come in adaptive mode
+    int getScheduled();
+
+    // Steps per second of busy time of each worker
+    double[] getStepsPerSecond();
+
+    // Mean wall-clock time of a step over every worker, in milliseconds
+    double getAverageStepMillis();
+
+    // Bytes held by the snapshot frames of the running realizations
+    long getSnapshotMemoryBytes();
+
+    // Bytes of per-step output written by the realizations of this sweep, including the running ones
+    long getBytesWritten();
+}
@@ -0,0 +1,155 @@
+package itba.edu.ar;
+
+import itba.edu.ar.simulation.Config;
+import itba.edu.ar.simulation.SplitMix64;
+import itba.edu.ar.simulation.Sweep;
+import itba.edu.ar.simulation.SweepParameter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Expands the Sweep of a configuration into its parameter points
+public class SweepPlan {
+    // The points in sweep order
+    public static List<SweepPoint> points(Config config) {
+        Sweep sweep = config.getSweep();
+        if (sweep == null) {
+            return legacyPoints(config);
+        }
+
+        List<String> names = new ArrayList<>(sweep.getParameters().keySet());
+        List<Boolean> integer = new ArrayList<>();
+        for (String name : names) {
+            integer.add(SweepPoint.field(name).getType() == int.class);
+        }
+
+        List<double[]> rows;
+        if (Sweep.DESIGN_GRID.equals(sweep.getDesign())) {
+            rows = grid(names, sweep);
+        } else if (Sweep.DESIGN_LATIN_HYPERCUBE.equals(sweep.getDesign())) {
+            rows = latinHypercube(names, sweep, config.getSeed());
+        } else {
+            throw new IllegalArgumentException("Diseño de barrido desconocido: " + sweep.getDesign());
+        }
+
+        Set<SweepPoint> points = new LinkedHashSet<>();
+        for (double[] row : rows) {
+            Map<String, Number> values = new LinkedHashMap<>();
+            StringBuilder label = new StringBuilder();
+            for (int i = 0; i < names.size(); i++) {
+                Number value = integer.get(i) ? (Number) (int) Math.round(row[i]) : (Number) row[i];
+                values.put(names.get(i), value);
+                label.append(i == 0 ? "" : "_").append(names.get(i)).append(value);
+            }
+            points.add(new SweepPoint(values, names.isEmpty() ? null : label.toString()));
+        }
+        return new ArrayList<>(points);
+    }
+
+    // Every number of humans with every probability, outputs named as before
+    private static List<SweepPoint> legacyPoints(Config config) {
+        List<SweepPoint> points = new ArrayList<>();
+        for (Integer nH : config.getInitialHumansList()) {
+            for (Double probability : config.getProbabilities()) {
+                Map<String, Number> values = new LinkedHashMap<>();
+                values.put("initialHumans", nH);
+                values.put("probabilityInfection", probability);
+                points.add(new SweepPoint(values, null));
+            }
+        }
+        return points;
+    }
+
+    // Cartesian product of the values of every parameter, the last one varying fastest
+    private static List<double[]> grid(List<String> names, Sweep sweep) {
+        List<double[]> axes = new ArrayList<>();
+        for (String name : names) {
+            SweepParameter parameter = sweep.getParameters().get(name);
+            if (parameter.getValues() != null) {
+                axes.add(parameter.getValues().stream().mapToDouble(Double::doubleValue).toArray());
+                continue;
+            }
+            if (parameter.getSteps() < 1) {
+                throw new IllegalArgumentException("Pasos de barrido inválidos para " + name + ": "
+                        + parameter.getSteps());
+            }
+            double[] axis = new double[parameter.getSteps()];
+            for (int k = 0; k < axis.length; k++) {
+                axis[k] = axis.length == 1 ? parameter.getMin()
+                        : parameter.getMin() + k * (parameter.getMax() - parameter.getMin()) / (axis.length - 1);
+            }
+            axes.add(axis);
+        }
+
+        List<double[]> rows = new ArrayList<>();
+        for (double[] axis : axes) {
+            if (axis.length == 0) {
+                return rows;
+            }
+        }
+        int[] index = new int[axes.size()];
+        while (true) {
+            double[] row = new double[axes.size()];
+            for (int i = 0; i < row.length; i++) {
+                row[i] = axes.get(i)[index[i]];
+            }
+            rows.add(row);
+
+            // Advance like an odometer, the last parameter first
+            int i = index.length - 1;
+            while (i >= 0 && ++index[i] == axes.get(i).length) {
+                index[i--] = 0;
+            }
+            if (i < 0) {
+                return rows;
+            }
+        }
+    }
+
+    // samples points such that every parameter falls once in each of samples equal slices of its range, at a
+    // uniform position within the slice
+    private static List<double[]> latinHypercube(List<String> names, Sweep sweep, long seed) {
+        int samples = sweep.getSamples();
+        if (samples < 1) {
+            throw new IllegalArgumentException("Muestras de barrido inválidas: " + samples);
+        }
+        SplitMix64 random = new SplitMix64(seed);
+        List<double[]> rows = new ArrayList<>();
+        for (int s = 0; s < samples; s++) {
+            rows.add(new double[names.size()]);
+        }
+        for (int i = 0; i < names.size(); i++) {
+            SweepParameter parameter = sweep.getParameters().get(names.get(i));
+
+            // One permutation of the slices per parameter
+            int[] slices = new int[samples];
+            for (int s = 0; s < samples; s++) {
+                slices[s] = s;
+            }
+            for (int s = samples - 1; s > 0; s--) {
+                int other = random.nextInt(s + 1);
+                int swap = slices[s];
+                slices[s] = slices[other];
+                slices[other] = swap;
+            }
+
+            for (int s = 0; s < samples; s++) {
+                double u = (slices[s] + random.nextDouble()) / samples;
+                List<Double> values = parameter.getValues();
+                if (values != null) {
+                    if (values.isEmpty()) {
+                        return List.of();
+                    }
+                    rows.get(s)[i] = values.get(Math.min((int) (u * values.size()), values.size() - 1));
+                } else {
+                    rows.get(s)[i] = parameter.getMin() + u * (parameter.getMax() - parameter.getMin());
+                }
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,54 @@
+package itba.edu.ar;
+
+import itba.edu.ar.simulation.Config;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+// One point of the parameter sweep: the values its jobs set on the configuration, by field name in sweep order
+public record SweepPoint(Map<String, Number> values, String label) {
+    public SweepPoint {
+        values = Collections.unmodifiableMap(new LinkedHashMap<>(values));
+    }
+
+    // Copy of the configuration with the values of this point
+    public Config apply(Config config) {
+        Config configCopy = new Config(config);
+        for (Map.Entry<String, Number> entry : values.entrySet()) {
+            try {
+                field(entry.getKey()).set(configCopy, entry.getValue());
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        configCopy.setSweepLabel(label);
+        return configCopy;
+    }
+
+    // The values for the console, like az=8.0, bz=4.0
+    public String describe() {
+        return values.entrySet().stream()
+                .map(entry -> entry.getKey() + "=" + entry.getValue())
+                .collect(Collectors.joining(", "));
+    }
+
+    // Field of the configuration a sweep can set
+    static Field field(String name) {
+        Field field;
+        try {
+            field = Config.class.getDeclaredField(name);
+        } catch (NoSuchFieldException e) {
+            throw new IllegalArgumentException("Parámetro de barrido desconocido: " + name);
+        }
+        if (Modifier.isStatic(field.getModifiers())
+                || (field.getType() != int.class && field.getType() != double.class)) {
+            throw new IllegalArgumentException("Parámetro de barrido no numérico: " + name);
+        }
+        field.setAccessible(true);
+        return field;
+    }
+}
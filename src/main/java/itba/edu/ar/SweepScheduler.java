@@ -0,0 +1,270 @@
+package itba.edu.ar;
+
+import itba.edu.ar.simulation.AdaptiveRealizations;
+import itba.edu.ar.simulation.Config;
+import itba.edu.ar.simulation.FinishState;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Hands out the jobs of a sweep longest expected first and estimates how long the rest will take
+public class SweepScheduler {
+    private final List<SweepJob> pending;
+    private final Map<SweepJob, Long> running = new HashMap<>();
+    private final double maxSteps;
+    private final double minTimeToCalculateVelocity;
+    private final AdaptiveRealizations adaptive;
+    private int scheduled;
+
+    // Progress of every parameter point, in sweep order
+    private final Map<SweepPoint, PointProgress> points = new LinkedHashMap<>();
+
+    // Measured cost and time of every completed run
+    private double observedCost;
+    private double observedMillis;
+
+    // Completed runs of one parameter point and, in adaptive mode, the running statistics of its observables
+    public static class PointProgress {
+        private final SweepPoint point;
+        private final int agents;
+        private int realizations;
+        private int completed;
+        private long totalSteps;
+        private int finishedRuns;
+        private final RunningStats zombieFraction = new RunningStats();
+        private final RunningStats finishTime = new RunningStats();
+        private final RunningStats averageVelocity = new RunningStats();
+        private String stoppingReason;
+        // Results of the current batch by realization, folded into the statistics in that order
+        private final Map<Integer, FinishState> batch = new TreeMap<>();
+
+        // Every result in the order it was recorded
+        private final List<FinishState> finishStates = new ArrayList<>();
+
+        private PointProgress(SweepPoint point, int agents) {
+            this.point = point;
+            this.agents = agents;
+        }
+
+        public SweepPoint getPoint() {
+            return point;
+        }
+
+        // Realizations scheduled for this point
+        public int getRealizations() {
+            return realizations;
+        }
+
+        public RunningStats getZombieFraction() {
+            return zombieFraction;
+        }
+
+        public RunningStats getFinishTime() {
+            return finishTime;
+        }
+
+        public RunningStats getAverageVelocity() {
+            return averageVelocity;
+        }
+
+        // Why no more realizations were scheduled, or null while the point is still running
+        public String getStoppingReason() {
+            return stoppingReason;
+        }
+
+        public List<FinishState> getFinishStates() {
+            return finishStates;
+        }
+    }
+
+    public SweepScheduler(List<SweepJob> jobs, Config config) {
+        this.pending = new ArrayList<>(jobs);
+        this.maxSteps = Math.ceil(config.getSimulationTime() / config.getTimeStep());
+        this.minTimeToCalculateVelocity = config.getMinTimeToCalculateVelocity();
+        this.adaptive = config.getAdaptiveRealizations();
+        this.scheduled = jobs.size();
+        for (SweepJob job : jobs) {
+            PointProgress progress = points.computeIfAbsent(job.point(), point -> {
+                Config pointConfig = point.apply(config);
+                return new PointProgress(point, pointConfig.getInitialHumans() + pointConfig.getInitialZombies());
+            });
+            progress.realizations = Math.max(progress.realizations, job.realization());
+        }
+    }
+
+    // Takes the pending job with the highest expected cost, the first one in sweep order on ties
+    public synchronized SweepJob next() throws InterruptedException {
+        while (pending.isEmpty()) {
+            if (running.isEmpty()) {
+                return null;
+            }
+            wait();
+        }
+        int best = 0;
+        double bestCost = expectedCost(pending.get(0));
+        for (int i = 1; i < pending.size(); i++) {
+            double cost = expectedCost(pending.get(i));
+            if (cost > bestCost) {
+                best = i;
+                bestCost = cost;
+            }
+        }
+        SweepJob job = pending.remove(best);
+        running.put(job, System.currentTimeMillis());
+        return job;
+    }
+
+    // Records the result of a finished job to refine the estimates and, in adaptive mode, to decide whether its
+    // point needs more realizations
+    public synchronized void completed(SweepJob job, long steps, FinishState finishState) {
+        record(job, steps, finishState, running.remove(job));
+    }
+
+    // Records the result of a job that was computed by an earlier sweep
+    public synchronized void reused(SweepJob job, long steps, FinishState finishState) {
+        pending.remove(job);
+        running.remove(job);
+        record(job, steps, finishState, null);
+    }
+
+    private void record(SweepJob job, long steps, FinishState finishState, Long start) {
+        PointProgress progress = points.get(job.point());
+        progress.completed++;
+        if (finishState != null) {
+            progress.finishStates.add(finishState);
+            progress.totalSteps += steps;
+            progress.finishedRuns++;
+            progress.batch.put(job.realization(), finishState);
+            if (start != null) {
+                observedCost += agents(job) * (double) steps;
+                observedMillis += System.currentTimeMillis() - start;
+            }
+        }
+
+        // Only whole batches are evaluated, so the outcome does not depend on timing
+        if (progress.completed == progress.realizations && progress.stoppingReason == null) {
+            for (FinishState result : progress.batch.values()) {
+                progress.zombieFraction.add(
+                        (double) result.num_zombies() / (result.num_zombies() + result.num_humans()));
+                progress.finishTime.add(result.time());
+                if (result.time() >= minTimeToCalculateVelocity) {
+                    progress.averageVelocity.add(result.averageVelocity());
+                }
+            }
+            progress.batch.clear();
+            if (adaptive == null) {
+                progress.stoppingReason = "fixed";
+            } else {
+                evaluate(progress);
+            }
+        }
+        notifyAll();
+    }
+
+    // Expected cost of a job, in agent steps
+    public synchronized double expectedCost(SweepJob job) {
+        return agents(job) * expectedSteps(job);
+    }
+
+    // Estimates the wall-clock time until every scheduled job is done
+    public synchronized long remainingMillis(int workers) {
+        if (observedCost == 0) {
+            return -1;
+        }
+        double millisPerCost = observedMillis / observedCost;
+        long now = System.currentTimeMillis();
+
+        double remaining = 0;
+        double longest = 0;
+        for (SweepJob job : pending) {
+            double millis = expectedCost(job) * millisPerCost;
+            remaining += millis;
+            longest = Math.max(longest, millis);
+        }
+        for (Map.Entry<SweepJob, Long> entry : running.entrySet()) {
+            double millis = Math.max(0, expectedCost(entry.getKey()) * millisPerCost - (now - entry.getValue()));
+            remaining += millis;
+            longest = Math.max(longest, millis);
+        }
+        // Work is shared among the workers, but no job can be split
+        return (long) Math.max(remaining / Math.max(1, workers), longest);
+    }
+
+    // Number of jobs scheduled so far
+    public synchronized int getScheduled() {
+        return scheduled;
+    }
+
+    // Number of jobs waiting for a worker
+    public synchronized int getQueued() {
+        return pending.size();
+    }
+
+    // Number of jobs being run
+    public synchronized int getRunning() {
+        return running.size();
+    }
+
+    // Number of completed jobs that failed
+    public synchronized int getFailed() {
+        int failed = 0;
+        for (PointProgress progress : points.values()) {
+            failed += progress.completed - progress.finishedRuns;
+        }
+        return failed;
+    }
+
+    // Realizations scheduled so far for the point of the job
+    public synchronized int getRealizations(SweepJob job) {
+        return points.get(job.point()).realizations;
+    }
+
+    // Confidence level of the stopping rule, 0.95 in fixed mode
+    public double getConfidence() {
+        return adaptive == null ? 0.95 : adaptive.getConfidence();
+    }
+
+    // Progress of every parameter point, in sweep order
+    public synchronized List<PointProgress> getPoints() {
+        return new ArrayList<>(points.values());
+    }
+
+    private void evaluate(PointProgress progress) {
+        double confidence = adaptive.getConfidence();
+        boolean converged = progress.zombieFraction.halfWidth(confidence) <= adaptive.getZombieFractionTolerance()
+                && progress.finishTime.halfWidth(confidence) <= adaptive.getFinishTimeTolerance()
+                // No run lasted long enough to measure the velocity, there is nothing to estimate
+                && (progress.averageVelocity.getCount() == 0
+                        || progress.averageVelocity.halfWidth(confidence) <= adaptive.getAverageVelocityTolerance());
+
+        if (converged) {
+            progress.stoppingReason = "converged";
+        } else if (progress.realizations >= adaptive.getMaxRealizations()) {
+            progress.stoppingReason = "max realizations";
+        } else {
+            int batch = Math.min(adaptive.getMinRealizations(),
+                    adaptive.getMaxRealizations() - progress.realizations);
+            for (int i = 1; i <= batch; i++) {
+                pending.add(new SweepJob(progress.point, progress.realizations + i));
+            }
+            progress.realizations += batch;
+            scheduled += batch;
+        }
+    }
+
+    private double expectedSteps(SweepJob job) {
+        PointProgress progress = points.get(job.point());
+        if (progress == null || progress.finishedRuns == 0) {
+            return maxSteps;
+        }
+        return (double) progress.totalSteps / progress.finishedRuns;
+    }
+
+    private int agents(SweepJob job) {
+        return points.get(job.point()).agents;
+    }
+}
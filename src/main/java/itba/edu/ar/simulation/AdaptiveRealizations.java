@@ -0,0 +1,65 @@
+package itba.edu.ar.simulation;
+
+// Sequential stopping rule for the number of realizations of each parameter point
+public class AdaptiveRealizations {
+    private int minRealizations = 5;
+    private int maxRealizations = 100;
+    // Two-sided confidence level of the intervals
+    private double confidence = 0.95;
+    // Largest accepted half-width of each interval, in the observable's units
+    private double zombieFractionTolerance = 0.02;
+    private double finishTimeTolerance = 1.0;
+    private double averageVelocityTolerance = 0.01;
+
+    public AdaptiveRealizations() {
+    }
+
+    public int getMinRealizations() {
+        // At least two runs are needed for a variance
+        return Math.max(2, minRealizations);
+    }
+
+    public void setMinRealizations(int minRealizations) {
+        this.minRealizations = minRealizations;
+    }
+
+    public int getMaxRealizations() {
+        return Math.max(getMinRealizations(), maxRealizations);
+    }
+
+    public void setMaxRealizations(int maxRealizations) {
+        this.maxRealizations = maxRealizations;
+    }
+
+    public double getConfidence() {
+        return confidence;
+    }
+
+    public void setConfidence(double confidence) {
+        this.confidence = confidence;
+    }
+
+    public double getZombieFractionTolerance() {
+        return zombieFractionTolerance;
+    }
+
+    public void setZombieFractionTolerance(double zombieFractionTolerance) {
+        this.zombieFractionTolerance = zombieFractionTolerance;
+    }
+
+    public double getFinishTimeTolerance() {
+        return finishTimeTolerance;
+    }
+
+    public void setFinishTimeTolerance(double finishTimeTolerance) {
+        this.finishTimeTolerance = finishTimeTolerance;
+    }
+
+    public double getAverageVelocityTolerance() {
+        return averageVelocityTolerance;
+    }
+
+    public void setAverageVelocityTolerance(double averageVelocityTolerance) {
+        this.averageVelocityTolerance = averageVelocityTolerance;
+    }
+}
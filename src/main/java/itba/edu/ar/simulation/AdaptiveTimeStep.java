@@ -0,0 +1,37 @@
+package itba.edu.ar.simulation;
+
+// Step size control for Simulation.run
+public class AdaptiveTimeStep {
+    private double minTimeStep = 0.05;
+    // At most relaxationTime
+    private double maxTimeStep = 0.25;
+    // Fraction of the smallest gap agents may close in one step
+    private double safetyFactor = 0.5;
+
+    public AdaptiveTimeStep() {
+    }
+
+    public double getMinTimeStep() {
+        return minTimeStep;
+    }
+
+    public void setMinTimeStep(double minTimeStep) {
+        this.minTimeStep = minTimeStep;
+    }
+
+    public double getMaxTimeStep() {
+        return Math.max(minTimeStep, maxTimeStep);
+    }
+
+    public void setMaxTimeStep(double maxTimeStep) {
+        this.maxTimeStep = maxTimeStep;
+    }
+
+    public double getSafetyFactor() {
+        return safetyFactor;
+    }
+
+    public void setSafetyFactor(double safetyFactor) {
+        this.safetyFactor = safetyFactor;
+    }
+}
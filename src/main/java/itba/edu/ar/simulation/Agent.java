@@ -1,183 +1,168 @@
 package itba.edu.ar.simulation;
 
-import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
+import java.util.random.RandomGenerator;
 
+// View over one slot of the AgentStore, which holds the state; this class has the step logic
 public class Agent {
     // Simulation parameters
     private final Config config;
     private final List<Agent> agents;
+    private final CellGrid grid;
+    private final AgentStore store;
+    private final ContactPairs contactPairs;
+    private final InfectionTable infections;
+    private final RandomGenerator random;
+    private final ForceKernel kernel;
 
     // Agent identification
     private final int id;
-    private AgentType type;
-
-    // Agent state
-    private boolean isInContact;
-    private double contactStartTime;
-    private Agent contactAgent;
-
-    // Position and movement
-    private Vector2D position;
-    private Vector2D velocity;
-    private Vector2D desiredDirection;
-    private double speed;
 
     // Physical properties
-    private double radius;
     private final double minRadius;
     private final double maxRadius;
     private final double relaxationTime;
     private final double CPM_BETA;
-
-    // List of contacts with other agents
-    private final List<Agent> contacts;
-
-    public Agent(int id, AgentType type, List<Agent> agents, Config config) {
+    // Adaptive steps relax radii exactly and scale the direction noise with the step length
+    private final boolean adaptive;
+
+    // Scratch vectors reused by the step methods, so a step allocates nothing
+    private final Vector2D position;
+    private final Vector2D velocity;
+    private final Vector2D direction;
+    private final Vector2D total;
+
+    public Agent(int id, AgentType type, AgentStore store, List<Agent> agents, CellGrid grid,
+            ContactPairs contactPairs, InfectionTable infections, RandomGenerator random, ForceKernel kernel,
+            Config config) {
         this.id = id;
-        this.type = type;
-        this.speed = type == AgentType.HUMAN ? config.getHumanSpeed() : config.getZombieSpeed();
-        this.isInContact = false;
-        this.contactStartTime = 0.0;
-        this.contactAgent = null;
+        this.store = store;
+        this.contactPairs = contactPairs;
+        this.infections = infections;
+        this.random = random;
+        this.kernel = kernel;
         this.minRadius = config.getMinRadius();
-        this.radius = config.getMaxRadius();
         this.maxRadius = config.getMaxRadius();
         this.relaxationTime = config.getRelaxationTime();
         this.CPM_BETA = config.getCpmBeta();
+        this.adaptive = config.getAdaptiveTimeStep() != null && config.getEventDriven() == null;
         this.agents = agents;
+        this.grid = grid;
         this.config = config;
+        this.position = new Vector2D(0, 0);
+        this.velocity = new Vector2D(0, 0);
+        this.direction = new Vector2D(0, 0);
+        this.total = new Vector2D(0, 0);
 
         // Inicializar posición aleatoria dentro del área permitida
-        this.position = PositionInitializer.initializePosition(config, agents, this);
-        this.velocity = new Vector2D(0, 0);
-        this.desiredDirection = new Vector2D(0, 0);
-        this.contacts = new ArrayList<>();
-    }
-
-    public Agent(Agent agent) {
-        this.id = agent.id;
-        this.type = agent.type;
-        this.speed = agent.speed;
-        this.isInContact = agent.isInContact;
-        this.contactStartTime = agent.contactStartTime;
-        this.contactAgent = agent.contactAgent;
-        this.position = new Vector2D(agent.position);
-        this.velocity = new Vector2D(agent.velocity);
-        this.desiredDirection = new Vector2D(agent.desiredDirection);
-        this.radius = agent.radius;
-        this.minRadius = agent.minRadius;
-        this.maxRadius = agent.maxRadius;
-        this.relaxationTime = agent.relaxationTime;
-        this.contacts = new ArrayList<>(agent.contacts);
-        this.agents = agent.agents;
-        this.config = agent.config;
-        this.CPM_BETA = agent.getCPM_BETA();
+        Vector2D position = PositionInitializer.initializePosition(config, store, type, random);
+        double speed = type == AgentType.HUMAN ? config.getHumanSpeed() : config.getZombieSpeed();
+        store.add(id, type, position.getX(), position.getY(), config.getMaxRadius(), speed);
     }
 
     public void setCPMVelocity() {
+        setCPMVelocity(random);
+    }
+
+    private void setCPMVelocity(RandomGenerator random) {
         // If agent is in infection period, velocity should be zero
-        if (isInContact && contactAgent != null &&
-                (config.getCurrentTime() - contactStartTime < config.getContactDuration())) {
-            this.velocity = new Vector2D(0, 0);
+        if (isInInfectionPeriod()) {
+            store.setVelocity(id, 0, 0);
             return;
         }
 
-        if (contacts.isEmpty()) {
-            // Free movement - velocity should be proportional to normalized radius
-            double normalizedRadius = (this.radius - this.minRadius) / (this.maxRadius - this.minRadius);
-            // Clamp normalized radius between 0 and 1
-            normalizedRadius = Math.max(0, Math.min(1, normalizedRadius));
-            // Key difference: Use power function directly with normalized radius
-            double desiredSpeed = this.speed * Math.pow(normalizedRadius, CPM_BETA);
-
-            if (desiredDirection.magnitude() < 1e-10) {
-                double angle = Math.random() * 2 * Math.PI;
-                this.desiredDirection = new Vector2D(Math.cos(angle), Math.sin(angle));
-            }
-
-            if (desiredDirection.magnitude() < 1e-10) {
-                this.velocity = new Vector2D(0, 0);
-                return;
-            }
-
-            Vector2D normalizedDirection = desiredDirection.normalize();
-            this.velocity = normalizedDirection.multiply(desiredSpeed);
+        if (!contactPairs.hasContacts(id)) {
+            setFreeVelocity(random);
         } else {
             // Escape velocity when in contact - use maximum speed
-            Vector2D escapeDirection = new Vector2D(0, 0);
-            for (Agent other : contacts) {
-                Vector2D diff = this.position.subtract(other.position);
+            position.set(store.getX(id), store.getY(id));
+            Vector2D escapeDirection = total.set(0, 0);
+            for (int pair = contactPairs.first(id); pair != -1; pair = contactPairs.next(pair, id)) {
+                int other = contactPairs.partner(pair, id);
+                Vector2D diff = direction.set(position).subtractLocal(store.getX(other), store.getY(other));
                 double distance = diff.magnitude();
                 if (distance < 1e-10)
                     distance = 1e-10;
-                escapeDirection = escapeDirection.add(diff.divide(distance)); // Normalized direction
+                escapeDirection.addLocal(diff.divideLocal(distance)); // Normalized direction
             }
 
             if (escapeDirection.magnitude() > 1e-10) {
-                escapeDirection = escapeDirection.normalize();
+                escapeDirection.normalizeLocal();
                 // Key difference: Use full speed for escape velocity
-                this.velocity = escapeDirection.multiply(this.speed);
+                escapeDirection.multiplyLocal(store.getSpeed(id));
+                store.setVelocity(id, escapeDirection.getX(), escapeDirection.getY());
             } else {
-                this.velocity = new Vector2D(0, 0);
+                store.setVelocity(id, 0, 0);
             }
-            // Don't clear contacts here - it's handled in calculateRadius
         }
     }
 
-    public void calculateRadius(double dt) {
-        contacts.clear();
+    void setFreeVelocity(RandomGenerator random) {
+        // Free movement - velocity should be proportional to normalized radius
+        double normalizedRadius = (store.getRadius(id) - this.minRadius) / (this.maxRadius - this.minRadius);
+        // Clamp normalized radius between 0 and 1
+        normalizedRadius = Math.max(0, Math.min(1, normalizedRadius));
+        // Key difference: Use power function directly with normalized radius
+        double desiredSpeed = store.getSpeed(id) * kernel.speedFactor(normalizedRadius);
 
-        for (Agent other : agents) {
-            if (other == this)
-                continue;
+        Vector2D desiredDirection = direction.set(store.getDirectionX(id), store.getDirectionY(id));
+        if (desiredDirection.magnitude() < 1e-10) {
+            double angle = random.nextDouble() * 2 * Math.PI;
+            desiredDirection.set(kernel.cos(angle), kernel.sin(angle));
+            store.setDirection(id, desiredDirection.getX(), desiredDirection.getY());
+        }
 
-            Vector2D diff = other.position.subtract(this.position);
-            double distance = diff.magnitude();
+        if (desiredDirection.magnitude() < 1e-10) {
+            store.setVelocity(id, 0, 0);
+            return;
+        }
+
+        Vector2D newVelocity = desiredDirection.normalizeLocal().multiplyLocal(desiredSpeed);
+        store.setVelocity(id, newVelocity.getX(), newVelocity.getY());
+    }
+
+    public void calculateRadius(double dt) {
+        contactPairs.reset(id);
+        int contacts = 0;
+
+        // Only agents in the neighbouring cells can be close enough to touch
+        int neighbourCount = grid.collectNeighbours(id);
+        int[] neighbours = grid.getNeighbours();
+        // Nobody moves while contacts are handled, so distances are measured for the whole block first
+        double[] distances = grid.getQuery().measureNeighbours(id, neighbourCount);
+        for (int n = 0; n < neighbourCount; n++) {
+            int otherId = neighbours[n];
+
+            double distance = distances[n];
             if (distance < 1e-10)
                 distance = 1e-10;
 
-            double combinedRadii = this.radius + other.radius;
+            double combinedRadii = store.getRadius(id) + store.getRadius(otherId);
             double collisionDistance = combinedRadii * 1.0;
 
             if (distance < collisionDistance) {
-                contacts.add(other);
-
-                this.contract();
-
-                if (!other.getContacts().contains(this)) {
-                    other.addContact(this);
-                }
+                contacts++;
+                // Listed by both agents, unless the other one already lists it
+                contactPairs.link(id, otherId);
 
                 // Handle infection logic
                 // Only infect if the other agent is not already in contact
-                if (this.type != other.type && !other.isInContact() && !this.isInContact) {
-                    if (!this.isInContact || this.contactAgent != other) {
-                        // New contact with different type - set contact state for both agents
-                        this.isInContact = true;
-                        this.contactStartTime = config.getCurrentTime();
-                        this.contactAgent = other;
-
-                        other.setInContact(true);
-                        other.setContactStartTime(config.getCurrentTime());
-                        other.setContactAgent(this);
-                    }
+                if (store.getType(id) != store.getType(otherId) && !store.isInContact(otherId)
+                        && !store.isInContact(id)) {
+                    // New contact with different type - set contact state for both agents
+                    infections.start(id, otherId, config.getCurrentTime());
                 }
 
-                other.contract();
+                store.setRadius(otherId, this.minRadius);
                 this.contract();
             }
         }
 
         // Handle radius changes
-        if (contacts.isEmpty()) {
+        if (contacts == 0) {
             // No contacts - expand radius
-            this.isInContact = false;
-            this.contactAgent = null;
-            this.radius += (this.maxRadius - this.radius) * (dt / this.relaxationTime);
-            this.radius = Math.min(this.radius, this.maxRadius);
+            store.setRadius(id, Math.min(relax(store.getRadius(id), dt), this.maxRadius));
         }
     }
 
@@ -186,191 +171,205 @@ public class Agent {
             handleInfectionFreeze();
             return;
         }
-        handleInfection();
+        handleInfection(random);
         // Update position based on velocity
         setCPMVelocity();
-        Vector2D newPosition = this.position.add(this.velocity.multiply(dt));
+        setPosition(integrate(dt));
+
+        calculateRadius(dt);
+        updateDesiredDirection(grid.getQuery(), random, dt);
+    }
+
+    // Move phase of the two-phase step: writes the new position to nextX/nextY without moving
+    void computeMove(double dt, RandomGenerator random, double[] nextX, double[] nextY) {
+        if (isInInfectionPeriod()) {
+            handleInfectionFreeze();
+            nextX[id] = store.getX(id);
+            nextY[id] = store.getY(id);
+            return;
+        }
+        setCPMVelocity(random);
+        Vector2D newPosition = integrate(dt);
+        nextX[id] = newPosition.getX();
+        nextY[id] = newPosition.getY();
+    }
+
+    // Contact phase of the two-phase step: returns the new radius and lists pairs with higher ids,
+    // starting no infections. Frozen agents shrink on contact but do not expand
+    double computeContacts(CellGrid.Query query, ParallelStepper.PairBuffer found, double dt, boolean frozen) {
+        int contacts = query.collectTouching(id, query.collectNeighbours(id));
+        int[] touching = query.getTouching();
+        for (int n = 0; n < contacts; n++) {
+            if (touching[n] > id) {
+                found.append(id, touching[n]);
+            }
+        }
+
+        if (contacts > 0) {
+            return this.minRadius;
+        }
+        double radius = store.getRadius(id);
+        if (frozen) {
+            return radius;
+        }
+        return Math.min(relax(radius, dt), this.maxRadius);
+    }
+
+    // The explicit step overshoots maxRadius once dt passes relaxationTime, adaptive steps decay exactly
+    private double relax(double radius, double dt) {
+        if (adaptive) {
+            return this.maxRadius - (this.maxRadius - radius) * Math.exp(-dt / this.relaxationTime);
+        }
+        return radius + (this.maxRadius - radius) * (dt / this.relaxationTime);
+    }
+
+    // New position after dt, reflected off the wall, in a scratch vector
+    private Vector2D integrate(double dt) {
+        Vector2D velocity = this.velocity.set(store.getVx(id), store.getVy(id));
+        Vector2D newPosition = position.set(velocity).multiplyLocal(dt).addLocal(store.getX(id), store.getY(id));
 
         // Improved boundary handling
+        double radius = store.getRadius(id);
         double distanceFromCenter = newPosition.magnitude();
-        if (distanceFromCenter > config.getArenaRadius() - this.radius) {
+        if (distanceFromCenter > config.getArenaRadius() - radius) {
             // Reflect the position and velocity off the boundary
-            Vector2D normal = newPosition.normalize();
-            newPosition = normal.multiply(config.getArenaRadius() - this.radius);
-            this.velocity = this.velocity.subtract(normal.multiply(2 * this.velocity.dot(normal)));
-            this.position = newPosition;
-        } else {
-            this.position = newPosition;
+            Vector2D normal = newPosition.normalizeLocal();
+            double reflection = 2 * velocity.dot(normal);
+            velocity.subtractLocal(normal.getX() * reflection, normal.getY() * reflection);
+            store.setVelocity(id, velocity.getX(), velocity.getY());
+            newPosition = normal.multiplyLocal(config.getArenaRadius() - radius);
         }
-
-        calculateRadius(dt);
-        updateDesiredDirection();
+        return newPosition;
     }
 
-    private void handleInfection() {
-        if (!isInInfectionPeriod() && isInContact) {
-            // Validate contactAgent is not null before using it
-            if (contactAgent == null) {
-                return;
-            }
+    void handleInfection(RandomGenerator random) {
+        if (infections.isDue(id)) {
+            int contactAgent = store.getContactAgent(id);
 
-            double turnRoll = Math.random();
+            double turnRoll = random.nextDouble();
             if (turnRoll < config.getProbabilityInfection()) {
                 // Turn both agents to Zombie
-                this.type = AgentType.ZOMBIE;
-                this.speed = config.getZombieSpeed();
-                contactAgent.setType(AgentType.ZOMBIE);
-                contactAgent.setSpeed(config.getZombieSpeed());
+                setType(AgentType.ZOMBIE);
+                store.setSpeed(id, config.getZombieSpeed());
+                agents.get(contactAgent).setType(AgentType.ZOMBIE);
+                store.setSpeed(contactAgent, config.getZombieSpeed());
             } else {
                 // Turn both agents to Human
-                this.type = AgentType.HUMAN;
-                this.speed = config.getHumanSpeed();
-                contactAgent.setType(AgentType.HUMAN);
-                contactAgent.setSpeed(config.getHumanSpeed());
+                setType(AgentType.HUMAN);
+                store.setSpeed(id, config.getHumanSpeed());
+                agents.get(contactAgent).setType(AgentType.HUMAN);
+                store.setSpeed(contactAgent, config.getHumanSpeed());
             }
 
             // Reset contact state for both agents
-            this.isInContact = false;
-            contactAgent.setInContact(false);
-            contactAgent.setContactAgent(null);
-            this.contactAgent = null;
+            infections.end(id, contactAgent);
         }
     }
 
     public boolean isInInfectionPeriod() {
-        return isInContact && contactAgent != null &&
-                (config.getCurrentTime() - contactStartTime < config.getContactDuration());
+        return infections.isFrozen(id);
     }
 
     public void handleInfectionFreeze() {
         // If agent is in infection period, velocity should be zero
         if (isInInfectionPeriod()) {
-            this.velocity = new Vector2D(0, 0);
+            store.setVelocity(id, 0, 0);
         }
     }
 
     public void updateDesiredDirection() {
-        if (this.type == AgentType.HUMAN) {
-
-            Vector2D totalDirection = new Vector2D(0, 0);
-
-            // Create lists of humans and zombies with distances
-            List<Map.Entry<Agent, Double>> humans = new ArrayList<>();
-            List<Map.Entry<Agent, Double>> zombies = new ArrayList<>();
-
-            for (Agent other : agents) {
-                if (other == this
-                // || other.isInContact()
-                )
-                    continue;
-
-                Vector2D diff = this.position.subtract(other.position);
-                double distance = diff.magnitude();
-                if (distance < 1e-10)
-                    continue;
+        updateDesiredDirection(grid.getQuery(), random, config.getTimeStep());
+    }
 
-                if (other.getType() == AgentType.ZOMBIE) {
-                    zombies.add(new AbstractMap.SimpleEntry<>(other, distance));
-                } else {
-                    humans.add(new AbstractMap.SimpleEntry<>(other, distance));
-                }
-            }
+    // dt is the length of the step the direction is held for
+    void updateDesiredDirection(CellGrid.Query query, RandomGenerator random, double dt) {
+        Vector2D position = this.position.set(store.getX(id), store.getY(id));
+        if (store.getType(id) == AgentType.HUMAN) {
 
-            // Sort by distance and take nearest nH humans and nZ zombies
-            humans.sort(Map.Entry.comparingByValue());
-            zombies.sort(Map.Entry.comparingByValue());
+            Vector2D totalDirection = total.set(0, 0);
 
+            // Nearest nH humans and nZ zombies, ordered by distance
             int nH = (int) config.getnH();
             int nZ = (int) config.getnZ();
 
-            humans = humans.subList(0, Math.min(nH, humans.size()));
-            zombies = zombies.subList(0, Math.min(nZ, zombies.size()));
-
-            // Calculate total direction based on nearest agents
-            for (Map.Entry<Agent, Double> entry : humans) {
-                Agent other = entry.getKey();
-                double distance = entry.getValue();
-                Vector2D direction = this.position.subtract(other.position).normalize();
-                totalDirection = totalDirection
-                        .add(direction.multiply(config.getAh() * Math.exp(-distance / config.getBh())));
+            int found = query.findNearest(id, AgentType.HUMAN, nH, false, true);
+            for (int n = 0; n < found; n++) {
+                int other = query.getNearestIds()[n];
+                double distance = query.getNearestDistances()[n];
+                Vector2D direction = this.direction.set(position)
+                        .subtractLocal(store.getX(other), store.getY(other)).normalizeLocal();
+                totalDirection.addLocal(direction.multiplyLocal(kernel.humanRepulsion(distance)));
             }
 
-            for (Map.Entry<Agent, Double> entry : zombies) {
-                Agent other = entry.getKey();
-                double distance = entry.getValue();
-                Vector2D direction = this.position.subtract(other.position).normalize();
-                totalDirection = totalDirection
-                        .add(direction.multiply(config.getAz() * Math.exp(-distance / config.getBz())));
+            found = query.findNearest(id, AgentType.ZOMBIE, nZ, false, true);
+            for (int n = 0; n < found; n++) {
+                int other = query.getNearestIds()[n];
+                double distance = query.getNearestDistances()[n];
+                Vector2D direction = this.direction.set(position)
+                        .subtractLocal(store.getX(other), store.getY(other)).normalizeLocal();
+                totalDirection.addLocal(direction.multiplyLocal(kernel.zombieRepulsion(distance)));
             }
 
             // Boundary repulsion
-            Vector2D boundaryDirection = calculateDistanceToWall();
-            totalDirection = totalDirection.add(boundaryDirection.normalize().multiply(config.getAw() *
-                    Math.exp(-boundaryDirection.magnitude() / config.getBw())));
+            Vector2D boundaryDirection = calculateDistanceToWall(position, this.direction);
+            double boundaryDistance = boundaryDirection.magnitude();
+            totalDirection.addLocal(boundaryDirection.normalizeLocal().multiplyLocal(
+                    kernel.wallRepulsion(boundaryDistance)));
 
             // Need to study if we add noise or not
             // Noise
             // Maximum noise is 1.5 degrees to each side
             double noise = 3 * Math.PI / 180;
-            double angularNoise = (Math.random() - 0.5) * noise;
-            totalDirection = totalDirection.rotate(angularNoise);
-            this.desiredDirection = totalDirection.normalize();
+            double angularNoise = (random.nextDouble() - 0.5) * noise;
+            if (adaptive) {
+                // One draw stands for dt / timeStep independent ones, which add up like a random walk
+                angularNoise *= Math.sqrt(dt / config.getTimeStep());
+            }
+            totalDirection.rotateLocal(kernel.cos(angularNoise), kernel.sin(angularNoise)).normalizeLocal();
+            store.setDirection(id, totalDirection.getX(), totalDirection.getY());
 
         } else {
             // Zombie behavior - pursue nearest human
-            Agent nearestHuman = null;
-            double minDistance = Double.MAX_VALUE;
+            int nearestHuman = -1;
 
             // Only pursue humans that are not in contact
-            for (Agent other : agents) {
-                if (other.getType() == AgentType.HUMAN && !other.isInContact()) {
-                    double distance = this.position.subtract(other.position).magnitude();
-                    if (distance < minDistance) {
-                        minDistance = distance;
-                        nearestHuman = other;
-                    }
-                }
+            if (query.findNearest(id, AgentType.HUMAN, 1, true, false) > 0) {
+                nearestHuman = query.getNearestIds()[0];
             }
 
-            if (nearestHuman != null) {
-                Vector2D pursuitDirection = nearestHuman.getPosition().subtract(this.position);
+            if (nearestHuman != -1) {
+                Vector2D pursuitDirection = direction.set(store.getX(nearestHuman), store.getY(nearestHuman))
+                        .subtractLocal(position);
                 if (pursuitDirection.magnitude() > 1e-10) {
-                    this.desiredDirection = pursuitDirection.normalize();
+                    pursuitDirection.normalizeLocal();
+                    store.setDirection(id, pursuitDirection.getX(), pursuitDirection.getY());
                 }
             } else {
                 // No humans to pursue, dont move
-                this.desiredDirection = new Vector2D(0, 0);
+                store.setDirection(id, 0, 0);
             }
         }
     }
 
-    private Vector2D calculateDistanceToWall() {
+    // Writes into out the vector from the closest point on the wall to the agent
+    private Vector2D calculateDistanceToWall(Vector2D position, Vector2D out) {
         double distanceToCenter = position.magnitude();
         double arenaRadius = config.getArenaRadius();
 
         // If agent is at center, return zero vector
         if (distanceToCenter < 1e-10) {
-            return new Vector2D(0, 0);
+            return out.set(0, 0);
         }
 
-        // Calculate vector from center to agent position (normalized)
-        Vector2D centerToAgent = position.normalize();
-
-        // Calculate closest point on wall
-        Vector2D closestPointOnWall = centerToAgent.multiply(arenaRadius);
-
-        // Vector from agent to closest point on wall
-        Vector2D distanceToWall = closestPointOnWall.subtract(position);
+        // Vector from center to agent position (normalized), scaled to the closest
+        // point on the wall, then taken from the agent to that point
+        out.set(position).normalizeLocal().multiplyLocal(arenaRadius).subtractLocal(position);
 
-        return distanceToWall.multiply(-1.0);
+        return out.multiplyLocal(-1.0);
     }
 
     public void contract() {
-        this.radius = this.minRadius;
-    }
-
-    public void addContact(Agent agent) {
-        this.contacts.add(agent);
+        store.setRadius(id, this.minRadius);
     }
 
     // ==========================
@@ -382,63 +381,53 @@ public class Agent {
     }
 
     public AgentType getType() {
-        return type;
+        return store.getType(id);
     }
 
     public Vector2D getPosition() {
-        return position;
+        return store.getPosition(id);
     }
 
     public void setPosition(Vector2D position) {
-        this.position = position;
+        store.setPosition(id, position.getX(), position.getY());
+        grid.update(id);
     }
 
     public Vector2D getVelocity() {
-        return velocity;
+        return new Vector2D(store.getVx(id), store.getVy(id));
     }
 
     public void setVelocity(Vector2D velocity) {
-        this.velocity = velocity;
+        store.setVelocity(id, velocity.getX(), velocity.getY());
     }
 
     public double getSpeed() {
-        return speed;
+        return store.getSpeed(id);
     }
 
     public void setSpeed(double speed) {
-        this.speed = speed;
+        store.setSpeed(id, speed);
     }
 
     public double getRadius() {
-        return radius;
+        return store.getRadius(id);
     }
 
     public void setRadius(double radius) {
-        this.radius = radius;
+        store.setRadius(id, radius);
     }
 
     public boolean isInContact() {
-        return isInContact;
-    }
-
-    public void setInContact(boolean inContact) {
-        isInContact = inContact;
+        return store.isInContact(id);
     }
 
     public double getContactStartTime() {
-        return contactStartTime;
-    }
-
-    public void setContactStartTime(double contactStartTime) {
-        this.contactStartTime = contactStartTime;
+        return store.getContactStartTime(id);
     }
 
     public Agent getContactAgent() {
-        return contactAgent;
-    }
-
-    public void setContactAgent(Agent contactAgent) {
-        this.contactAgent = contactAgent;
+        int contactAgent = store.getContactAgent(id);
+        return contactAgent == -1 ? null : agents.get(contactAgent);
     }
 
     public Config getConfig() {
@@ -449,16 +438,25 @@ public class Agent {
         return agents;
     }
 
+    public CellGrid getGrid() {
+        return grid;
+    }
+
+    public AgentStore getStore() {
+        return store;
+    }
+
     public void setType(AgentType type) {
-        this.type = type;
+        store.setType(id, type);
+        grid.updateType(id);
     }
 
     public Vector2D getDesiredDirection() {
-        return desiredDirection;
+        return new Vector2D(store.getDirectionX(id), store.getDirectionY(id));
     }
 
     public void setDesiredDirection(Vector2D desiredDirection) {
-        this.desiredDirection = desiredDirection;
+        store.setDirection(id, desiredDirection.getX(), desiredDirection.getY());
     }
 
     public double getMinRadius() {
@@ -478,6 +476,10 @@ public class Agent {
     }
 
     public List<Agent> getContacts() {
+        List<Agent> contacts = new ArrayList<>();
+        for (int pair = contactPairs.first(id); pair != -1; pair = contactPairs.next(pair, id)) {
+            contacts.add(agents.get(contactPairs.partner(pair, id)));
+        }
         return contacts;
     }
 }
@@ -0,0 +1,292 @@
+package itba.edu.ar.simulation;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+// Structure-of-arrays storage for the state of every agent in a simulation
+public class AgentStore {
+    private static final AgentType[] TYPES = AgentType.values();
+
+    private int size;
+
+    // Position and movement
+    private double[] x;
+    private double[] y;
+    private double[] vx;
+    private double[] vy;
+    private double[] directionX;
+    private double[] directionY;
+    private double[] speed;
+
+    // Physical properties
+    private double[] radius;
+    private byte[] type;
+
+    // Infection contact state, driven by InfectionTable
+    private double[] contactStartTime;
+    private int[] contactAgent;
+
+    // Infection contacts started or resolved so far
+    private long infectionEvents;
+
+    // Live number of agents of each type, indexed by ordinal
+    private int[] typeCounts = new int[TYPES.length];
+
+    public AgentStore(int capacity) {
+        capacity = Math.max(1, capacity);
+        this.x = new double[capacity];
+        this.y = new double[capacity];
+        this.vx = new double[capacity];
+        this.vy = new double[capacity];
+        this.directionX = new double[capacity];
+        this.directionY = new double[capacity];
+        this.speed = new double[capacity];
+        this.radius = new double[capacity];
+        this.type = new byte[capacity];
+        this.contactStartTime = new double[capacity];
+        this.contactAgent = new int[capacity];
+    }
+
+    // Copy constructor
+    public AgentStore(AgentStore other) {
+        this.size = other.size;
+        this.x = Arrays.copyOf(other.x, other.size);
+        this.y = Arrays.copyOf(other.y, other.size);
+        this.vx = Arrays.copyOf(other.vx, other.size);
+        this.vy = Arrays.copyOf(other.vy, other.size);
+        this.directionX = Arrays.copyOf(other.directionX, other.size);
+        this.directionY = Arrays.copyOf(other.directionY, other.size);
+        this.speed = Arrays.copyOf(other.speed, other.size);
+        this.radius = Arrays.copyOf(other.radius, other.size);
+        this.type = Arrays.copyOf(other.type, other.size);
+        this.contactStartTime = Arrays.copyOf(other.contactStartTime, other.size);
+        this.contactAgent = Arrays.copyOf(other.contactAgent, other.size);
+        this.infectionEvents = other.infectionEvents;
+        this.typeCounts = other.typeCounts.clone();
+    }
+
+    // Makes this store an exact copy of other, reusing its arrays
+    void copyFrom(AgentStore other) {
+        ensureCapacity(other.size);
+        size = other.size;
+        System.arraycopy(other.x, 0, x, 0, size);
+        System.arraycopy(other.y, 0, y, 0, size);
+        System.arraycopy(other.vx, 0, vx, 0, size);
+        System.arraycopy(other.vy, 0, vy, 0, size);
+        System.arraycopy(other.directionX, 0, directionX, 0, size);
+        System.arraycopy(other.directionY, 0, directionY, 0, size);
+        System.arraycopy(other.speed, 0, speed, 0, size);
+        System.arraycopy(other.radius, 0, radius, 0, size);
+        System.arraycopy(other.type, 0, type, 0, size);
+        System.arraycopy(other.contactStartTime, 0, contactStartTime, 0, size);
+        System.arraycopy(other.contactAgent, 0, contactAgent, 0, size);
+        infectionEvents = other.infectionEvents;
+        System.arraycopy(other.typeCounts, 0, typeCounts, 0, typeCounts.length);
+    }
+
+    // Appends a new agent at rest with no contact
+    public void add(int id, AgentType agentType, double posX, double posY, double agentRadius, double agentSpeed) {
+        if (id != size) {
+            throw new IllegalArgumentException("Agent ids must be added in order, expected " + size + " got " + id);
+        }
+        ensureCapacity(size + 1);
+        x[id] = posX;
+        y[id] = posY;
+        vx[id] = 0;
+        vy[id] = 0;
+        directionX[id] = 0;
+        directionY[id] = 0;
+        speed[id] = agentSpeed;
+        radius[id] = agentRadius;
+        type[id] = (byte) agentType.ordinal();
+        typeCounts[agentType.ordinal()]++;
+        contactStartTime[id] = 0.0;
+        contactAgent[id] = -1;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double getX(int id) {
+        return x[id];
+    }
+
+    public double getY(int id) {
+        return y[id];
+    }
+
+    // Backing arrays read by the distance kernels, replaced when the store grows
+    double[] positionsX() {
+        return x;
+    }
+
+    double[] positionsY() {
+        return y;
+    }
+
+    double[] radii() {
+        return radius;
+    }
+
+    public Vector2D getPosition(int id) {
+        return new Vector2D(x[id], y[id]);
+    }
+
+    public void setPosition(int id, double posX, double posY) {
+        x[id] = posX;
+        y[id] = posY;
+    }
+
+    public double getVx(int id) {
+        return vx[id];
+    }
+
+    public double getVy(int id) {
+        return vy[id];
+    }
+
+    public void setVelocity(int id, double velocityX, double velocityY) {
+        vx[id] = velocityX;
+        vy[id] = velocityY;
+    }
+
+    public double getDirectionX(int id) {
+        return directionX[id];
+    }
+
+    public double getDirectionY(int id) {
+        return directionY[id];
+    }
+
+    public void setDirection(int id, double dirX, double dirY) {
+        directionX[id] = dirX;
+        directionY[id] = dirY;
+    }
+
+    public double getSpeed(int id) {
+        return speed[id];
+    }
+
+    public void setSpeed(int id, double agentSpeed) {
+        speed[id] = agentSpeed;
+    }
+
+    public double getRadius(int id) {
+        return radius[id];
+    }
+
+    public void setRadius(int id, double agentRadius) {
+        radius[id] = agentRadius;
+    }
+
+    public AgentType getType(int id) {
+        return TYPES[type[id]];
+    }
+
+    public void setType(int id, AgentType agentType) {
+        typeCounts[type[id]]--;
+        type[id] = (byte) agentType.ordinal();
+        typeCounts[type[id]]++;
+    }
+
+    // Number of agents currently of the given type, kept up to date on every type change
+    public int count(AgentType agentType) {
+        return typeCounts[agentType.ordinal()];
+    }
+
+    public boolean isInContact(int id) {
+        return contactAgent[id] != -1;
+    }
+
+    public double getContactStartTime(int id) {
+        return contactStartTime[id];
+    }
+
+    // Id of the agent this one is in contact with, or -1
+    public int getContactAgent(int id) {
+        return contactAgent[id];
+    }
+
+    // Puts two agents of different type in infection contact with each other
+    void startContact(int id, int other, double time) {
+        contactStartTime[id] = time;
+        contactAgent[id] = other;
+
+        contactStartTime[other] = time;
+        contactAgent[other] = id;
+        infectionEvents++;
+    }
+
+    // Releases both agents of a resolved infection contact
+    void endContact(int id, int other) {
+        contactAgent[other] = -1;
+        contactAgent[id] = -1;
+        infectionEvents++;
+    }
+
+    // Number of infection contacts started or resolved so far
+    public long getInfectionEvents() {
+        return infectionEvents;
+    }
+
+    // Writes every agent for a Checkpoint
+    void writeState(DataOutput out) throws IOException {
+        out.writeInt(size);
+        Checkpoint.writeDoubles(out, x, size);
+        Checkpoint.writeDoubles(out, y, size);
+        Checkpoint.writeDoubles(out, vx, size);
+        Checkpoint.writeDoubles(out, vy, size);
+        Checkpoint.writeDoubles(out, directionX, size);
+        Checkpoint.writeDoubles(out, directionY, size);
+        Checkpoint.writeDoubles(out, speed, size);
+        Checkpoint.writeDoubles(out, radius, size);
+        out.write(type, 0, size);
+        Checkpoint.writeDoubles(out, contactStartTime, size);
+        Checkpoint.writeInts(out, contactAgent, size);
+        out.writeLong(infectionEvents);
+    }
+
+    // Replaces every agent with the ones written by writeState
+    void readState(DataInput in) throws IOException {
+        size = in.readInt();
+        ensureCapacity(size);
+        x = Checkpoint.readDoubles(in, x, size);
+        y = Checkpoint.readDoubles(in, y, size);
+        vx = Checkpoint.readDoubles(in, vx, size);
+        vy = Checkpoint.readDoubles(in, vy, size);
+        directionX = Checkpoint.readDoubles(in, directionX, size);
+        directionY = Checkpoint.readDoubles(in, directionY, size);
+        speed = Checkpoint.readDoubles(in, speed, size);
+        radius = Checkpoint.readDoubles(in, radius, size);
+        in.readFully(type, 0, size);
+        contactStartTime = Checkpoint.readDoubles(in, contactStartTime, size);
+        contactAgent = Checkpoint.readInts(in, contactAgent, size);
+        infectionEvents = in.readLong();
+        Arrays.fill(typeCounts, 0);
+        for (int id = 0; id < size; id++) {
+            typeCounts[type[id]]++;
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= x.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, x.length * 2);
+        x = Arrays.copyOf(x, newCapacity);
+        y = Arrays.copyOf(y, newCapacity);
+        vx = Arrays.copyOf(vx, newCapacity);
+        vy = Arrays.copyOf(vy, newCapacity);
+        directionX = Arrays.copyOf(directionX, newCapacity);
+        directionY = Arrays.copyOf(directionY, newCapacity);
+        speed = Arrays.copyOf(speed, newCapacity);
+        radius = Arrays.copyOf(radius, newCapacity);
+        type = Arrays.copyOf(type, newCapacity);
+        contactStartTime = Arrays.copyOf(contactStartTime, newCapacity);
+        contactAgent = Arrays.copyOf(contactAgent, newCapacity);
+    }
+}
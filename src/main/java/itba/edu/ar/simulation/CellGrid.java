@@ -0,0 +1,450 @@
+package itba.edu.ar.simulation;
+
+import java.util.Arrays;
+
+// Uniform cell list over the square that encloses the circular arena
+public class CellGrid {
+    // Below this many agents of a type a plain scan beats walking empty cells
+    private static final int LINEAR_SCAN_LIMIT = 32;
+
+    private final AgentStore store;
+    private final DistanceKernel kernel;
+    private final double origin;
+    private final double cellSize;
+    private final int cellsPerSide;
+
+    // Doubly linked list of agents per cell and type
+    private final int[][] heads;
+    private int[] next;
+    private int[] previous;
+    private int[] cellOf;
+    private int[] typeOf;
+
+    // Dense list of agents per type, used for the linear scan
+    private final int[][] members;
+    private final int[] memberCount;
+    private int[] memberIndex;
+
+    // Scratch buffers of the queries made through the grid itself
+    private final Query query;
+
+    public CellGrid(Config config, AgentStore store) {
+        this.store = store;
+        this.kernel = DistanceKernel.of(config);
+        this.origin = -config.getArenaRadius();
+        this.cellSize = 2 * config.getMaxRadius();
+        this.cellsPerSide = Math.max(1, (int) Math.ceil(2 * config.getArenaRadius() / cellSize));
+
+        int types = AgentType.values().length;
+        this.heads = new int[types][cellsPerSide * cellsPerSide];
+        for (int[] head : heads) {
+            Arrays.fill(head, -1);
+        }
+
+        int capacity = Math.max(16, config.getInitialHumans() + config.getInitialZombies());
+        this.next = new int[capacity];
+        this.previous = new int[capacity];
+        this.cellOf = new int[capacity];
+        this.typeOf = new int[capacity];
+        this.members = new int[types][capacity];
+        this.memberCount = new int[types];
+        this.memberIndex = new int[capacity];
+        Arrays.fill(cellOf, -1);
+        this.query = new Query();
+    }
+
+    public void insert(int id) {
+        ensureCapacity(id + 1);
+        typeOf[id] = store.getType(id).ordinal();
+        addMember(id);
+        link(id, cellIndex(store.getX(id), store.getY(id)));
+    }
+
+    public void update(int id) {
+        int cell = cellIndex(store.getX(id), store.getY(id));
+        if (cellOf[id] == cell) {
+            return;
+        }
+        unlink(id);
+        link(id, cell);
+    }
+
+    public void updateType(int id) {
+        int type = store.getType(id).ordinal();
+        if (typeOf[id] == type) {
+            return;
+        }
+        int cell = cellOf[id];
+        unlink(id);
+        removeMember(id);
+        typeOf[id] = type;
+        addMember(id);
+        link(id, cell);
+    }
+
+    // Files every agent of the store again, for a store whose state was replaced wholesale
+    public void rebuild() {
+        for (int[] head : heads) {
+            Arrays.fill(head, -1);
+        }
+        Arrays.fill(memberCount, 0);
+        Arrays.fill(cellOf, -1);
+        for (int id = 0; id < store.size(); id++) {
+            insert(id);
+        }
+    }
+
+    // The query the grid uses for its own query methods
+    public Query getQuery() {
+        return query;
+    }
+
+    // A new set of scratch buffers for queries made from another thread
+    public Query newQuery() {
+        return new Query();
+    }
+
+    // Same as Query.collectNeighbours on the grid's own query
+    public int collectNeighbours(int id) {
+        return query.collectNeighbours(id);
+    }
+
+    // Same as Query.findNearest on the grid's own query
+    public int findNearest(int id, AgentType type, int k, boolean skipInContact, boolean excludeCoincident) {
+        return query.findNearest(id, type, k, skipInContact, excludeCoincident);
+    }
+
+    // Lower bound of the smallest gap between the edges of two agents: for every agent, the distance to the nearest
+    // centre minus its own radius and the largest radius an agent can have
+    public double smallestGap() {
+        double maxRadius = cellSize / 2;
+        double gap = Double.POSITIVE_INFINITY;
+        AgentType[] types = AgentType.values();
+        for (int a = 0; a < types.length; a++) {
+            for (int b = a; b < types.length; b++) {
+                int from = memberCount[a] <= memberCount[b] ? a : b;
+                AgentType to = types[from == a ? b : a];
+                for (int m = 0; m < memberCount[from]; m++) {
+                    int id = members[from][m];
+                    if (query.findNearest(id, to, 1, false, false) > 0) {
+                        gap = Math.min(gap, query.getNearestDistances()[0] - store.getRadius(id) - maxRadius);
+                    }
+                }
+            }
+        }
+        return gap;
+    }
+
+    public int[] getNeighbours() {
+        return query.getNeighbours();
+    }
+
+    public int[] getNearestIds() {
+        return query.getNearestIds();
+    }
+
+    public double[] getNearestDistances() {
+        return query.getNearestDistances();
+    }
+
+    // Scratch buffers for neighbour queries
+    public class Query {
+        private int[] neighbours;
+        private double[] distances;
+        private int[] touching;
+        // Coordinates of a block of agents packed for the distance kernel
+        private double[] blockX;
+        private double[] blockY;
+        private double[] blockRadius;
+        private int[] nearestIds;
+        private double[] nearestDistances;
+
+        private Query() {
+            this.neighbours = new int[next.length];
+            this.distances = new double[next.length];
+            this.touching = new int[next.length];
+            this.blockX = new double[next.length];
+            this.blockY = new double[next.length];
+            this.blockRadius = new double[next.length];
+            this.nearestIds = new int[4];
+            this.nearestDistances = new double[4];
+        }
+
+        // Collects the ids of every agent in the 3x3 block of cells around the given agent, excluding the agent
+        // itself, sorted by id so callers can visit them in the same order as the agent list
+        public int collectNeighbours(int id) {
+            if (neighbours.length < next.length) {
+                neighbours = new int[next.length];
+            }
+            int cell = cellOf[id];
+            int cx = cell % cellsPerSide;
+            int cy = cell / cellsPerSide;
+            int count = 0;
+
+            for (int y = Math.max(0, cy - 1); y <= Math.min(cellsPerSide - 1, cy + 1); y++) {
+                for (int x = Math.max(0, cx - 1); x <= Math.min(cellsPerSide - 1, cx + 1); x++) {
+                    for (int[] head : heads) {
+                        for (int other = head[y * cellsPerSide + x]; other != -1; other = next[other]) {
+                            if (other != id) {
+                                neighbours[count++] = other;
+                            }
+                        }
+                    }
+                }
+            }
+
+            Arrays.sort(neighbours, 0, count);
+            return count;
+        }
+
+        // Collects the ids of every agent whose centre is within distance of the given agent, excluding the agent
+        // itself, sorted by id
+        public int collectWithin(int id, double distance) {
+            if (neighbours.length < next.length) {
+                neighbours = new int[next.length];
+            }
+            int cell = cellOf[id];
+            int cx = cell % cellsPerSide;
+            int cy = cell / cellsPerSide;
+            int rings = (int) Math.ceil(distance / cellSize);
+            double px = store.getX(id);
+            double py = store.getY(id);
+            double limit = distance * distance;
+            int count = 0;
+
+            for (int y = Math.max(0, cy - rings); y <= Math.min(cellsPerSide - 1, cy + rings); y++) {
+                for (int x = Math.max(0, cx - rings); x <= Math.min(cellsPerSide - 1, cx + rings); x++) {
+                    for (int[] head : heads) {
+                        for (int other = head[y * cellsPerSide + x]; other != -1; other = next[other]) {
+                            double dx = px - store.getX(other);
+                            double dy = py - store.getY(other);
+                            if (other != id && dx * dx + dy * dy <= limit) {
+                                neighbours[count++] = other;
+                            }
+                        }
+                    }
+                }
+            }
+
+            Arrays.sort(neighbours, 0, count);
+            return count;
+        }
+
+        // Distances from agent id to the first count ids of getNeighbours, in the same order
+        public double[] measureNeighbours(int id, int count) {
+            return measure(store.getX(id), store.getY(id), neighbours, count);
+        }
+
+        // Collects the agents among the first count ids of getNeighbours that touch agent id, in the same order
+        public int collectTouching(int id, int count) {
+            if (touching.length < count) {
+                touching = new int[neighbours.length];
+            }
+            pack(neighbours, count);
+            int found = kernel.touching(store.getX(id), store.getY(id), store.getRadius(id), blockX, blockY,
+                    blockRadius, count, touching);
+            for (int n = 0; n < found; n++) {
+                touching[n] = neighbours[touching[n]];
+            }
+            return found;
+        }
+
+        private double[] measure(double px, double py, int[] ids, int count) {
+            if (distances.length < count) {
+                distances = new double[Math.max(count, next.length)];
+            }
+            pack(ids, count);
+            kernel.distances(px, py, blockX, blockY, count, distances);
+            return distances;
+        }
+
+        // Copies the position and radius of the first count agents of ids to the block arrays
+        private void pack(int[] ids, int count) {
+            if (blockX.length < count) {
+                int capacity = Math.max(count, next.length);
+                blockX = new double[capacity];
+                blockY = new double[capacity];
+                blockRadius = new double[capacity];
+            }
+            for (int n = 0; n < count; n++) {
+                int other = ids[n];
+                blockX[n] = store.getX(other);
+                blockY[n] = store.getY(other);
+                blockRadius[n] = store.getRadius(other);
+            }
+        }
+
+        // Finds the k agents of the given type closest to agent id
+        public int findNearest(int id, AgentType type, int k, boolean skipInContact, boolean excludeCoincident) {
+            if (k <= 0) {
+                return 0;
+            }
+            if (k > nearestIds.length) {
+                nearestIds = new int[k];
+                nearestDistances = new double[k];
+            }
+
+            int t = type.ordinal();
+            double px = store.getX(id);
+            double py = store.getY(id);
+            int found = 0;
+
+            if (memberCount[t] <= LINEAR_SCAN_LIMIT) {
+                int[] typeMembers = members[t];
+                double[] distances = measure(px, py, typeMembers, memberCount[t]);
+                for (int m = 0; m < memberCount[t]; m++) {
+                    found = offer(typeMembers[m], distances[m], id, k, found, skipInContact, excludeCoincident);
+                }
+                return found;
+            }
+
+            int cell = cellOf[id];
+            int cx = cell % cellsPerSide;
+            int cy = cell / cellsPerSide;
+            int[] head = heads[t];
+
+            for (int ring = 0; ring < cellsPerSide; ring++) {
+                for (int y = cy - ring; y <= cy + ring; y++) {
+                    if (y < 0 || y >= cellsPerSide) {
+                        continue;
+                    }
+                    // Inner rows only contribute their two border cells
+                    int step = (y == cy - ring || y == cy + ring) ? 1 : Math.max(1, 2 * ring);
+                    for (int x = cx - ring; x <= cx + ring; x += step) {
+                        if (x < 0 || x >= cellsPerSide) {
+                            continue;
+                        }
+                        for (int other = head[y * cellsPerSide + x]; other != -1; other = next[other]) {
+                            double dx = store.getX(other) - px;
+                            double dy = store.getY(other) - py;
+                            found = offer(other, Math.sqrt(dx * dx + dy * dy), id, k, found, skipInContact,
+                                    excludeCoincident);
+                        }
+                    }
+                }
+
+                // Anything outside this ring is farther than ring * cellSize
+                if (found == k && nearestDistances[k - 1] <= ring * cellSize) {
+                    break;
+                }
+            }
+            return found;
+        }
+
+        private int offer(int other, double distance, int id, int k, int found,
+                boolean skipInContact, boolean excludeCoincident) {
+            if (other == id) {
+                return found;
+            }
+            if (skipInContact && store.isInContact(other)) {
+                return found;
+            }
+
+            if (excludeCoincident && distance < 1e-10) {
+                return found;
+            }
+
+            // Insertion into the sorted top-k buffer
+            int slot = found;
+            while (slot > 0 && isCloser(distance, other, nearestDistances[slot - 1], nearestIds[slot - 1])) {
+                slot--;
+            }
+            if (slot >= k) {
+                return found;
+            }
+            int last = Math.min(found, k - 1);
+            for (int i = last; i > slot; i--) {
+                nearestIds[i] = nearestIds[i - 1];
+                nearestDistances[i] = nearestDistances[i - 1];
+            }
+            nearestIds[slot] = other;
+            nearestDistances[slot] = distance;
+            return Math.min(found + 1, k);
+        }
+
+        public int[] getNeighbours() {
+            return neighbours;
+        }
+
+        public int[] getTouching() {
+            return touching;
+        }
+
+        public int[] getNearestIds() {
+            return nearestIds;
+        }
+
+        public double[] getNearestDistances() {
+            return nearestDistances;
+        }
+    }
+
+    private static boolean isCloser(double distance, int id, double otherDistance, int otherId) {
+        return distance < otherDistance || (distance == otherDistance && id < otherId);
+    }
+
+    private int cellIndex(double x, double y) {
+        return cellCoordinate(y) * cellsPerSide + cellCoordinate(x);
+    }
+
+    private int cellCoordinate(double value) {
+        // Positions outside the arena are clamped to the border cells
+        int coordinate = (int) Math.floor((value - origin) / cellSize);
+        return Math.max(0, Math.min(cellsPerSide - 1, coordinate));
+    }
+
+    private void link(int id, int cell) {
+        int[] head = heads[typeOf[id]];
+        previous[id] = -1;
+        next[id] = head[cell];
+        if (head[cell] != -1) {
+            previous[head[cell]] = id;
+        }
+        head[cell] = id;
+        cellOf[id] = cell;
+    }
+
+    private void unlink(int id) {
+        int[] head = heads[typeOf[id]];
+        int cell = cellOf[id];
+        if (previous[id] != -1) {
+            next[previous[id]] = next[id];
+        } else {
+            head[cell] = next[id];
+        }
+        if (next[id] != -1) {
+            previous[next[id]] = previous[id];
+        }
+        cellOf[id] = -1;
+    }
+
+    private void addMember(int id) {
+        int type = typeOf[id];
+        memberIndex[id] = memberCount[type];
+        members[type][memberCount[type]++] = id;
+    }
+
+    private void removeMember(int id) {
+        int type = typeOf[id];
+        int last = members[type][--memberCount[type]];
+        members[type][memberIndex[id]] = last;
+        memberIndex[last] = memberIndex[id];
+    }
+
+    private void ensureCapacity(int size) {
+        if (size <= next.length) {
+            return;
+        }
+        int capacity = Math.max(size, next.length * 2);
+        int oldCapacity = next.length;
+        next = Arrays.copyOf(next, capacity);
+        previous = Arrays.copyOf(previous, capacity);
+        cellOf = Arrays.copyOf(cellOf, capacity);
+        Arrays.fill(cellOf, oldCapacity, capacity, -1);
+        typeOf = Arrays.copyOf(typeOf, capacity);
+        memberIndex = Arrays.copyOf(memberIndex, capacity);
+        for (int t = 0; t < members.length; t++) {
+            members[t] = Arrays.copyOf(members[t], capacity);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package itba.edu.ar.simulation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+// Binary snapshot of everything a running Simulation needs to continue: agents, contact and infection state, time
+// and random streams, plus the positions its SnapshotSink had reached
+public final class Checkpoint {
+    private static final int MAGIC = 0x5A434B50;
+    private static final int VERSION = 5;
+
+    // Identifies the configuration and realization, empty when the run has none
+    private final String key;
+    private final int realizationNumber;
+    private final long seed;
+    private final int agents;
+    private final long[] sinkPositions;
+    private final byte[] state;
+
+    Checkpoint(String key, int realizationNumber, long seed, int agents, long[] sinkPositions, byte[] state) {
+        this.key = key;
+        this.realizationNumber = realizationNumber;
+        this.seed = seed;
+        this.agents = agents;
+        this.sinkPositions = sinkPositions;
+        this.state = state;
+    }
+
+    public static Checkpoint read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("No es un checkpoint: " + file);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Versión de checkpoint no soportada " + version + ": " + file);
+            }
+            String key = in.readUTF();
+            int realizationNumber = in.readInt();
+            long seed = in.readLong();
+            int agents = in.readInt();
+            long[] sinkPositions = readLongs(in, in.readInt());
+            byte[] state = new byte[in.readInt()];
+            in.readFully(state);
+            return new Checkpoint(key, realizationNumber, seed, agents, sinkPositions, state);
+        }
+    }
+
+    void write(Path file) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream stream = Files.newOutputStream(temporary);
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(key);
+            out.writeInt(realizationNumber);
+            out.writeLong(seed);
+            out.writeInt(agents);
+            out.writeInt(sinkPositions.length);
+            writeLongs(out, sinkPositions, sinkPositions.length);
+            out.writeInt(state.length);
+            out.write(state);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public int getRealizationNumber() {
+        return realizationNumber;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getAgents() {
+        return agents;
+    }
+
+    // Positions to reopen the output of the run at, as returned by SnapshotSink.checkpoint
+    public long[] getSinkPositions() {
+        return sinkPositions.clone();
+    }
+
+    DataInput state() {
+        return new DataInputStream(new ByteArrayInputStream(state));
+    }
+
+    static void writeDoubles(DataOutput out, double[] values, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            out.writeDouble(values[i]);
+        }
+    }
+
+    static void writeInts(DataOutput out, int[] values, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            out.writeInt(values[i]);
+        }
+    }
+
+    static void writeLongs(DataOutput out, long[] values, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            out.writeLong(values[i]);
+        }
+    }
+
+    static double[] readDoubles(DataInput in, double[] values, int count) throws IOException {
+        if (values.length < count) {
+            values = new double[count];
+        }
+        for (int i = 0; i < count; i++) {
+            values[i] = in.readDouble();
+        }
+        return values;
+    }
+
+    static int[] readInts(DataInput in, int[] values, int count) throws IOException {
+        if (values.length < count) {
+            values = new int[count];
+        }
+        for (int i = 0; i < count; i++) {
+            values[i] = in.readInt();
+        }
+        return values;
+    }
+
+    static long[] readLongs(DataInput in, int count) throws IOException {
+        long[] values = new long[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = in.readLong();
+        }
+        return values;
+    }
+}
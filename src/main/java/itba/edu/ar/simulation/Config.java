@@ -3,6 +3,13 @@ package itba.edu.ar.simulation;
 import java.util.List;
 
 public class Config {
+    public static final String OUTPUT_FORMAT_CSV = "csv";
+    public static final String OUTPUT_FORMAT_NPY = "npy";
+    public static final String STEPPING_SEQUENTIAL = "sequential";
+    public static final String STEPPING_PARALLEL = "parallel";
+    public static final String KERNEL_SCALAR = "scalar";
+    public static final String KERNEL_VECTOR = "vector";
+
     // CPM Parameters
     private double cpmBeta;
 
@@ -31,7 +38,37 @@ public class Config {
     private boolean savePositions;
     private boolean saveFinishStates;
     private boolean orianaAnalysis;
+    // "csv" or "npy"
+    private String outputFormat = OUTPUT_FORMAT_CSV;
+    // Which steps are recorded, every step when missing
+    private RecordingPolicy recording;
     private double minTimeToCalculateVelocity;
+    // Master seed, each realization derives its own random stream from it
+    private long seed;
+    // "sequential" or "parallel"
+    private String steppingMode = STEPPING_SEQUENTIAL;
+    // Threads for parallel stepping, 0 uses the common ForkJoin pool
+    private int stepThreads;
+    // Swept fields and sampling design, initialHumansList × probabilities when missing
+    private Sweep sweep;
+    // Name of the sweep point in output files, set on the configuration of each job
+    private String sweepLabel;
+    // Stopping rule for the realizations of each point, fixed count when missing
+    private AdaptiveRealizations adaptiveRealizations;
+    // Step size control, every step lasts timeStep when missing
+    private AdaptiveTimeStep adaptiveTimeStep;
+    // Event-driven updates, fixed steps when missing
+    private EventDriven eventDriven;
+    // Tabulated exponentials, powers and rotations, exact Math calls when missing
+    private TabulatedKernel tabulatedKernel;
+    // Distance loops one agent at a time or on the Vector API, both give the same results
+    private String distanceKernel = KERNEL_SCALAR;
+    // Run the sweep with both force kernels and report how far their results are, instead of saving them
+    private boolean validateForceKernel;
+    // Wall clock seconds between checkpoints of a running realization, 0 disables them
+    private double checkpointInterval;
+    // Skip realizations already computed in the output directory
+    private boolean reuseResults = true;
 
     // Zombies/Humans Parameters
     private List<Integer> initialHumansList;
@@ -112,7 +149,22 @@ public class Config {
         this.savePositions = config.savePositions;
         this.saveFinishStates = config.saveFinishStates;
         this.orianaAnalysis = config.orianaAnalysis;
+        this.outputFormat = config.outputFormat;
+        this.recording = config.recording;
         this.minTimeToCalculateVelocity = config.minTimeToCalculateVelocity;
+        this.seed = config.seed;
+        this.steppingMode = config.steppingMode;
+        this.stepThreads = config.stepThreads;
+        this.sweep = config.sweep;
+        this.sweepLabel = config.sweepLabel;
+        this.adaptiveRealizations = config.adaptiveRealizations;
+        this.adaptiveTimeStep = config.adaptiveTimeStep;
+        this.eventDriven = config.eventDriven;
+        this.tabulatedKernel = config.tabulatedKernel;
+        this.distanceKernel = config.distanceKernel;
+        this.validateForceKernel = config.validateForceKernel;
+        this.checkpointInterval = config.checkpointInterval;
+        this.reuseResults = config.reuseResults;
         this.initialHumans = config.initialHumans;
         this.initialHumansList = config.initialHumansList;
         this.initialZombies = config.initialZombies;
@@ -247,6 +299,14 @@ public class Config {
         this.minTimeToCalculateVelocity = minTimeToCalculateVelocity;
     }
 
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
     public int getInitialHumans() {
         return initialHumans;
     }
@@ -375,6 +435,118 @@ public class Config {
         this.orianaAnalysis = orianaAnalysis;
     }
 
+    public String getOutputFormat() {
+        return outputFormat == null ? OUTPUT_FORMAT_CSV : outputFormat;
+    }
+
+    public void setOutputFormat(String outputFormat) {
+        this.outputFormat = outputFormat;
+    }
+
+    public RecordingPolicy getRecording() {
+        return recording == null ? new RecordingPolicy() : recording;
+    }
+
+    public void setRecording(RecordingPolicy recording) {
+        this.recording = recording;
+    }
+
+    public String getSteppingMode() {
+        return steppingMode == null ? STEPPING_SEQUENTIAL : steppingMode;
+    }
+
+    public void setSteppingMode(String steppingMode) {
+        this.steppingMode = steppingMode;
+    }
+
+    public int getStepThreads() {
+        return stepThreads;
+    }
+
+    public void setStepThreads(int stepThreads) {
+        this.stepThreads = stepThreads;
+    }
+
+    public Sweep getSweep() {
+        return sweep;
+    }
+
+    public void setSweep(Sweep sweep) {
+        this.sweep = sweep;
+    }
+
+    public String getSweepLabel() {
+        return sweepLabel;
+    }
+
+    public void setSweepLabel(String sweepLabel) {
+        this.sweepLabel = sweepLabel;
+    }
+
+    public AdaptiveRealizations getAdaptiveRealizations() {
+        return adaptiveRealizations;
+    }
+
+    public void setAdaptiveRealizations(AdaptiveRealizations adaptiveRealizations) {
+        this.adaptiveRealizations = adaptiveRealizations;
+    }
+
+    public AdaptiveTimeStep getAdaptiveTimeStep() {
+        return adaptiveTimeStep;
+    }
+
+    public void setAdaptiveTimeStep(AdaptiveTimeStep adaptiveTimeStep) {
+        this.adaptiveTimeStep = adaptiveTimeStep;
+    }
+
+    public EventDriven getEventDriven() {
+        return eventDriven;
+    }
+
+    public void setEventDriven(EventDriven eventDriven) {
+        this.eventDriven = eventDriven;
+    }
+
+    public TabulatedKernel getTabulatedKernel() {
+        return tabulatedKernel;
+    }
+
+    public void setTabulatedKernel(TabulatedKernel tabulatedKernel) {
+        this.tabulatedKernel = tabulatedKernel;
+    }
+
+    public String getDistanceKernel() {
+        return distanceKernel == null ? KERNEL_SCALAR : distanceKernel;
+    }
+
+    public void setDistanceKernel(String distanceKernel) {
+        this.distanceKernel = distanceKernel;
+    }
+
+    public boolean isValidateForceKernel() {
+        return validateForceKernel;
+    }
+
+    public void setValidateForceKernel(boolean validateForceKernel) {
+        this.validateForceKernel = validateForceKernel;
+    }
+
+    public double getCheckpointInterval() {
+        return checkpointInterval;
+    }
+
+    public void setCheckpointInterval(double checkpointInterval) {
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    public boolean isReuseResults() {
+        return reuseResults;
+    }
+
+    public void setReuseResults(boolean reuseResults) {
+        this.reuseResults = reuseResults;
+    }
+
     public List<Integer> getInitialHumansList() {
         return initialHumansList;
     }
@@ -0,0 +1,308 @@
+package itba.edu.ar.simulation;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+// Agents that touch each other, kept as pairs in primitive arrays with each unordered pair stored once
+public class ContactPairs {
+    private static final int NONE = -1;
+
+    // Pairs: the two agents, the next pair in each agent's list and the list
+    // generation of each agent the link belongs to
+    private int[] agentA;
+    private int[] agentB;
+    private int[] nextA;
+    private int[] nextB;
+    private int[] generationA;
+    private int[] generationB;
+    private int pairCount;
+    private int freePair = NONE;
+
+    // Contact list of each agent, a link counts only if it has the agent's current generation
+    private int[] head;
+    private int[] tail;
+    private int[] generation;
+
+    // Open addressing map from the two agents of a pair to the pair
+    private long[] keys;
+    private int[] slots;
+    private int mapSize;
+
+    public ContactPairs(int agents) {
+        int capacity = Math.max(16, agents);
+        this.agentA = new int[capacity];
+        this.agentB = new int[capacity];
+        this.nextA = new int[capacity];
+        this.nextB = new int[capacity];
+        this.generationA = new int[capacity];
+        this.generationB = new int[capacity];
+        this.head = new int[capacity];
+        this.tail = new int[capacity];
+        this.generation = new int[capacity];
+        Arrays.fill(head, NONE);
+        Arrays.fill(tail, NONE);
+        this.keys = new long[Integer.highestOneBit(capacity) << 2];
+        this.slots = new int[keys.length];
+        Arrays.fill(slots, NONE);
+    }
+
+    // Empties the contact list of an agent
+    public void reset(int id) {
+        ensureAgents(id + 1);
+        for (int pair = head[id]; pair != NONE;) {
+            int next = next(pair, id);
+            int other = partner(pair, id);
+            if (!isListed(pair, other)) {
+                free(pair);
+            }
+            pair = next;
+        }
+        generation[id]++;
+        head[id] = NONE;
+        tail[id] = NONE;
+    }
+
+    // Empties the contact list of every agent
+    public void clear() {
+        pairCount = 0;
+        freePair = NONE;
+        mapSize = 0;
+        Arrays.fill(slots, NONE);
+        for (int id = 0; id < head.length; id++) {
+            generation[id]++;
+            head[id] = NONE;
+            tail[id] = NONE;
+        }
+    }
+
+    // Appends the pair to the contact list of each agent that does not list it yet
+    public void link(int id, int other) {
+        ensureAgents(Math.max(id, other) + 1);
+        int pair = find(id, other);
+        if (pair == NONE) {
+            pair = allocate(id, other);
+        }
+        if (!isListed(pair, id)) {
+            append(pair, id);
+        }
+        if (!isListed(pair, other)) {
+            append(pair, other);
+        }
+    }
+
+    // Whether the agent lists anyone
+    public boolean hasContacts(int id) {
+        return id < head.length && head[id] != NONE;
+    }
+
+    // First pair in the contact list of the agent, or -1
+    public int first(int id) {
+        return id < head.length ? head[id] : NONE;
+    }
+
+    // Pair after pair in the contact list of the agent, or -1
+    public int next(int pair, int id) {
+        return agentA[pair] == id ? nextA[pair] : nextB[pair];
+    }
+
+    // The agent paired with id in pair
+    public int partner(int pair, int id) {
+        return agentA[pair] == id ? agentB[pair] : agentA[pair];
+    }
+
+    // Writes every pair and contact list for a Checkpoint
+    void writeState(DataOutput out) throws IOException {
+        out.writeInt(pairCount);
+        out.writeInt(freePair);
+        Checkpoint.writeInts(out, agentA, pairCount);
+        Checkpoint.writeInts(out, agentB, pairCount);
+        Checkpoint.writeInts(out, nextA, pairCount);
+        Checkpoint.writeInts(out, nextB, pairCount);
+        Checkpoint.writeInts(out, generationA, pairCount);
+        Checkpoint.writeInts(out, generationB, pairCount);
+        out.writeInt(head.length);
+        Checkpoint.writeInts(out, head, head.length);
+        Checkpoint.writeInts(out, tail, tail.length);
+        Checkpoint.writeInts(out, generation, generation.length);
+    }
+
+    // Replaces every pair and contact list with the ones written by writeState
+    void readState(DataInput in) throws IOException {
+        pairCount = in.readInt();
+        freePair = in.readInt();
+        while (agentA.length < pairCount) {
+            growPairs();
+        }
+        Checkpoint.readInts(in, agentA, pairCount);
+        Checkpoint.readInts(in, agentB, pairCount);
+        Checkpoint.readInts(in, nextA, pairCount);
+        Checkpoint.readInts(in, nextB, pairCount);
+        Checkpoint.readInts(in, generationA, pairCount);
+        Checkpoint.readInts(in, generationB, pairCount);
+        int agents = in.readInt();
+        head = Checkpoint.readInts(in, new int[agents], agents);
+        tail = Checkpoint.readInts(in, new int[agents], agents);
+        generation = Checkpoint.readInts(in, new int[agents], agents);
+
+        // The map only holds pairs that are not in the free list
+        boolean[] free = new boolean[pairCount];
+        for (int pair = freePair; pair != NONE; pair = nextA[pair]) {
+            free[pair] = true;
+        }
+        mapSize = 0;
+        Arrays.fill(slots, NONE);
+        for (int pair = 0; pair < pairCount; pair++) {
+            if (!free[pair]) {
+                put(pair);
+            }
+        }
+    }
+
+    private boolean isListed(int pair, int id) {
+        return agentA[pair] == id ? generationA[pair] == generation[id] : generationB[pair] == generation[id];
+    }
+
+    private void append(int pair, int id) {
+        if (agentA[pair] == id) {
+            nextA[pair] = NONE;
+            generationA[pair] = generation[id];
+        } else {
+            nextB[pair] = NONE;
+            generationB[pair] = generation[id];
+        }
+        if (tail[id] == NONE) {
+            head[id] = pair;
+        } else if (agentA[tail[id]] == id) {
+            nextA[tail[id]] = pair;
+        } else {
+            nextB[tail[id]] = pair;
+        }
+        tail[id] = pair;
+    }
+
+    private int allocate(int id, int other) {
+        int pair;
+        if (freePair != NONE) {
+            pair = freePair;
+            freePair = nextA[pair];
+        } else {
+            if (pairCount == agentA.length) {
+                growPairs();
+            }
+            pair = pairCount++;
+        }
+        agentA[pair] = id;
+        agentB[pair] = other;
+        // Neither agent lists the new pair yet
+        generationA[pair] = generation[id] - 1;
+        generationB[pair] = generation[other] - 1;
+        put(pair);
+        return pair;
+    }
+
+    private void free(int pair) {
+        remove(key(agentA[pair], agentB[pair]));
+        nextA[pair] = freePair;
+        freePair = pair;
+    }
+
+    private int find(int id, int other) {
+        long key = key(id, other);
+        int mask = keys.length - 1;
+        for (int slot = hash(key) & mask; slots[slot] != NONE; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return slots[slot];
+            }
+        }
+        return NONE;
+    }
+
+    private void put(int pair) {
+        if (2 * (mapSize + 1) > keys.length) {
+            rehash(keys.length * 2);
+        }
+        long key = key(agentA[pair], agentB[pair]);
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (slots[slot] != NONE) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        slots[slot] = pair;
+        mapSize++;
+    }
+
+    private void remove(long key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (keys[slot] != key || slots[slot] == NONE) {
+            slot = (slot + 1) & mask;
+        }
+        // Backward shift deletion, so lookups never need tombstones
+        int hole = slot;
+        for (int next = (hole + 1) & mask; slots[next] != NONE; next = (next + 1) & mask) {
+            int home = hash(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                slots[hole] = slots[next];
+                hole = next;
+            }
+        }
+        slots[hole] = NONE;
+        mapSize--;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldSlots = slots;
+        keys = new long[capacity];
+        slots = new int[capacity];
+        Arrays.fill(slots, NONE);
+        int mask = capacity - 1;
+        for (int i = 0; i < oldSlots.length; i++) {
+            if (oldSlots[i] == NONE) {
+                continue;
+            }
+            int slot = hash(oldKeys[i]) & mask;
+            while (slots[slot] != NONE) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = oldKeys[i];
+            slots[slot] = oldSlots[i];
+        }
+    }
+
+    private void growPairs() {
+        int capacity = agentA.length * 2;
+        agentA = Arrays.copyOf(agentA, capacity);
+        agentB = Arrays.copyOf(agentB, capacity);
+        nextA = Arrays.copyOf(nextA, capacity);
+        nextB = Arrays.copyOf(nextB, capacity);
+        generationA = Arrays.copyOf(generationA, capacity);
+        generationB = Arrays.copyOf(generationB, capacity);
+    }
+
+    private void ensureAgents(int agents) {
+        if (agents <= head.length) {
+            return;
+        }
+        int capacity = Math.max(agents, head.length * 2);
+        int oldCapacity = head.length;
+        head = Arrays.copyOf(head, capacity);
+        tail = Arrays.copyOf(tail, capacity);
+        generation = Arrays.copyOf(generation, capacity);
+        Arrays.fill(head, oldCapacity, capacity, NONE);
+        Arrays.fill(tail, oldCapacity, capacity, NONE);
+    }
+
+    private static long key(int a, int b) {
+        return a < b ? ((long) a << 32) | b : ((long) b << 32) | a;
+    }
+
+    private static int hash(long key) {
+        key *= 0x9E3779B97F4A7C15L;
+        return (int) (key ^ (key >>> 32));
+    }
+}
@@ -0,0 +1,46 @@
+package itba.edu.ar.simulation;
+
+// Distances from one point to a block of agents whose coordinates are packed in primitive arrays, entry n of every
+// array belonging to the same agent
+interface DistanceKernel {
+    // Writes to distances[n] the distance from (x, y) to (xs[n], ys[n]), for every n < count
+    void distances(double x, double y, double[] xs, double[] ys, int count, double[] distances);
+
+    // Finds the agents among the first count of the block that touch a disc of the given radius at (x, y), distances
+    // being floored at 1e-10
+    int touching(double x, double y, double radius, double[] xs, double[] ys, double[] radii, int count,
+            int[] touching);
+
+    // Whether (x, y) is closer to any of the first count agents than twice its radius
+    boolean overlapsAny(double x, double y, double[] xs, double[] ys, double[] radii, int count);
+
+    // The kernel selected by distanceKernel
+    static DistanceKernel of(Config config) {
+        String mode = config.getDistanceKernel();
+        if (Config.KERNEL_VECTOR.equals(mode)) {
+            return Vectorized.KERNEL;
+        }
+        if (Config.KERNEL_SCALAR.equals(mode)) {
+            return ScalarDistanceKernel.INSTANCE;
+        }
+        throw new IllegalArgumentException("Kernel de distancias desconocido: " + mode);
+    }
+
+    // Loads the VectorDistanceKernel the first time it is asked for, only if the JVM has the Vector API module, and
+    // warns once if it does not
+    final class Vectorized {
+        static final DistanceKernel KERNEL = load();
+
+        private Vectorized() {
+        }
+
+        private static DistanceKernel load() {
+            if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+                System.err.println("Error al cargar el kernel vectorial: falta --add-modules jdk.incubator.vector, "
+                        + "se usa el escalar");
+                return ScalarDistanceKernel.INSTANCE;
+            }
+            return new VectorDistanceKernel();
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package itba.edu.ar.simulation;
+
+// Settings of the EventDrivenEngine
+public class EventDriven {
+    // Seconds between direction updates, agents move in straight lines in between
+    private double directionInterval = 0.25;
+
+    public EventDriven() {
+    }
+
+    public double getDirectionInterval() {
+        return directionInterval;
+    }
+
+    public void setDirectionInterval(double directionInterval) {
+        this.directionInterval = directionInterval;
+    }
+}
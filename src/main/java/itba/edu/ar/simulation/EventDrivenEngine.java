@@ -0,0 +1,383 @@
+package itba.edu.ar.simulation;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+// Event-driven alternative to the fixed step update, used when the configuration has an EventDriven object
+class EventDrivenEngine {
+    private static final byte CONTACT = 0;
+    private static final byte WALL = 1;
+    // Contacts are resolved this much after start + contactDuration, so rounding cannot leave them pending
+    private static final double EXPIRY_SLACK = 1e-9;
+
+    private final List<Agent> agents;
+    private final AgentStore store;
+    private final CellGrid grid;
+    private final CellGrid.Query query;
+    private final InfectionTable infections;
+    private final SplitMix64 random;
+    private final double directionInterval;
+    private final double arenaRadius;
+    private final double minRadius;
+    private final double maxRadius;
+    private final double relaxationTime;
+    // Centres of two agents that can touch before the next tick are at most this far apart
+    private final double candidateRange;
+
+    private final EventQueue queue = new EventQueue();
+    // Time of the position of each agent in the store
+    private final double[] since;
+    // Time since which the radius of each agent relaxes
+    private final double[] radiusSince;
+    // Bumped whenever the velocity or radius of an agent changes, invalidating its predictions
+    private final int[] stamp;
+    // Time of the last contact of each agent
+    private final double[] touchedAt;
+    // Agents each agent can touch before the next tick, candidates[candidateStart[id]..candidateStart[id + 1])
+    private final int[] candidateStart;
+    private int[] candidates;
+    private double nextTick;
+
+    // Every agent at the instant asked for by frameAt
+    private final AgentStore frame;
+
+    EventDrivenEngine(Config config, List<Agent> agents, AgentStore store, CellGrid grid, InfectionTable infections,
+            SplitMix64 random) {
+        this.agents = agents;
+        this.store = store;
+        this.grid = grid;
+        this.query = grid.getQuery();
+        this.infections = infections;
+        this.random = random;
+        this.directionInterval = config.getEventDriven().getDirectionInterval();
+        this.arenaRadius = config.getArenaRadius();
+        this.minRadius = config.getMinRadius();
+        this.maxRadius = config.getMaxRadius();
+        this.relaxationTime = config.getRelaxationTime();
+        double maxSpeed = Math.max(config.getHumanSpeed(), config.getZombieSpeed());
+        this.candidateRange = 2 * maxSpeed * directionInterval + 2 * maxRadius;
+
+        int size = agents.size();
+        this.since = new double[size];
+        this.radiusSince = new double[size];
+        this.stamp = new int[size];
+        this.touchedAt = new double[size];
+        Arrays.fill(touchedAt, Double.NEGATIVE_INFINITY);
+        this.candidateStart = new int[size + 1];
+        this.candidates = new int[Math.max(16, size)];
+        this.frame = new AgentStore(size);
+    }
+
+    // Processes every event up to time, included
+    void advance(double time) {
+        while (true) {
+            double expiry = infections.nextExpiry();
+            double predicted = queue.peekTime();
+            double next = Math.min(Math.min(expiry, predicted), nextTick);
+            if (next > time) {
+                return;
+            }
+            if (expiry == next) {
+                resolveInfections(expiry);
+            } else if (predicted == next) {
+                processPredicted();
+            } else {
+                tick(nextTick);
+            }
+        }
+    }
+
+    // Every agent at time, which must not be past the next event; the frame is reused by the next call
+    AgentStore frameAt(double time) {
+        frame.copyFrom(store);
+        for (int id = 0; id < store.size(); id++) {
+            frame.setPosition(id, x(id, time), y(id, time));
+        }
+        return frame;
+    }
+
+    // Writes the pending events and the timing of every agent for a Checkpoint
+    void writeState(DataOutput out) throws IOException {
+        int size = since.length;
+        out.writeDouble(nextTick);
+        Checkpoint.writeDoubles(out, since, size);
+        Checkpoint.writeDoubles(out, radiusSince, size);
+        Checkpoint.writeInts(out, stamp, size);
+        Checkpoint.writeDoubles(out, touchedAt, size);
+        Checkpoint.writeInts(out, candidateStart, size + 1);
+        Checkpoint.writeInts(out, candidates, candidateStart[size]);
+        queue.writeState(out);
+    }
+
+    // Restores what writeState wrote
+    void readState(DataInput in) throws IOException {
+        int size = since.length;
+        nextTick = in.readDouble();
+        Checkpoint.readDoubles(in, since, size);
+        Checkpoint.readDoubles(in, radiusSince, size);
+        Checkpoint.readInts(in, stamp, size);
+        Checkpoint.readDoubles(in, touchedAt, size);
+        Checkpoint.readInts(in, candidateStart, size + 1);
+        candidates = Checkpoint.readInts(in, candidates, candidateStart[size]);
+        queue.readState(in);
+    }
+
+    private void processPredicted() {
+        double time = queue.peekTime();
+        byte kind = queue.peekKind();
+        int a = queue.peekFirst();
+        int b = queue.peekSecond();
+        // Either agent changed course after the prediction
+        boolean stale = stamp[a] != queue.peekFirstStamp() || (b != -1 && stamp[b] != queue.peekSecondStamp());
+        queue.poll();
+        if (stale) {
+            return;
+        }
+        if (kind == WALL) {
+            hitWall(a, time);
+        } else {
+            touch(a, b, time);
+        }
+    }
+
+    private void tick(double time) {
+        int size = store.size();
+        nextTick = time + directionInterval;
+
+        for (int id = 0; id < size; id++) {
+            moveTo(id, time);
+            // Frozen agents do not expand
+            if (!infections.isFrozen(id)) {
+                double relaxation = Math.exp(-(time - radiusSince[id]) / relaxationTime);
+                store.setRadius(id, maxRadius - (maxRadius - store.getRadius(id)) * relaxation);
+                keepInside(id);
+            }
+            radiusSince[id] = time;
+            grid.update(id);
+        }
+        for (int id = 0; id < size; id++) {
+            if (!infections.isFrozen(id)) {
+                agents.get(id).updateDesiredDirection(query, random, directionInterval);
+            }
+        }
+        for (int id = 0; id < size; id++) {
+            if (infections.isFrozen(id)) {
+                store.setVelocity(id, 0, 0);
+            } else {
+                agents.get(id).setFreeVelocity(random);
+            }
+            stamp[id]++;
+        }
+
+        collectCandidates();
+        queue.clear();
+        for (int id = 0; id < size; id++) {
+            predictWall(id, time);
+            for (int c = candidateStart[id]; c < candidateStart[id + 1]; c++) {
+                // Every pair once
+                if (candidates[c] > id) {
+                    predictContact(id, candidates[c], time);
+                }
+            }
+        }
+    }
+
+    private void touch(int a, int b, double time) {
+        moveTo(a, time);
+        moveTo(b, time);
+        if (store.getType(a) != store.getType(b) && !store.isInContact(a) && !store.isInContact(b)) {
+            infections.start(a, b, time);
+        }
+        // Before contracting, so the radii that made them touch decide who else they touch
+        escape(a, b, time);
+        escape(b, a, time);
+        contract(a, time);
+        contract(b, time);
+        touchedAt[a] = time;
+        touchedAt[b] = time;
+        stamp[a]++;
+        stamp[b]++;
+        predict(a, time);
+        predict(b, time);
+    }
+
+    private void hitWall(int a, double time) {
+        moveTo(a, time);
+        double x = store.getX(a);
+        double y = store.getY(a);
+        double distance = Math.sqrt(x * x + y * y);
+        if (distance < 1e-10) {
+            return;
+        }
+        double nx = x / distance;
+        double ny = y / distance;
+        double limit = arenaRadius - store.getRadius(a);
+        store.setPosition(a, nx * limit, ny * limit);
+
+        // Reflect the velocity off the boundary
+        double vx = store.getVx(a);
+        double vy = store.getVy(a);
+        double reflection = 2 * (vx * nx + vy * ny);
+        store.setVelocity(a, vx - nx * reflection, vy - ny * reflection);
+        stamp[a]++;
+        predict(a, time);
+    }
+
+    private void resolveInfections(double time) {
+        infections.beginStep(time + EXPIRY_SLACK);
+        for (int k = 0; k < infections.dueCount(); k++) {
+            int id = infections.dueAgent(k);
+            int other = store.getContactAgent(id);
+            agents.get(id).handleInfection(random);
+            release(id, time);
+            release(other, time);
+        }
+    }
+
+    // Puts an agent whose infection contact is over back into free movement
+    private void release(int id, double time) {
+        moveTo(id, time);
+        radiusSince[id] = time;
+        agents.get(id).setFreeVelocity(random);
+        stamp[id]++;
+        predict(id, time);
+    }
+
+    private void contract(int id, double time) {
+        store.setRadius(id, minRadius);
+        radiusSince[id] = time;
+    }
+
+    // Sends an agent at full speed away from the one it touched and every other agent it overlaps, or stops it if
+    // it is frozen
+    private void escape(int id, int touched, double time) {
+        if (infections.isFrozen(id)) {
+            store.setVelocity(id, 0, 0);
+            return;
+        }
+        double ex = 0;
+        double ey = 0;
+        for (int c = candidateStart[id]; c < candidateStart[id + 1]; c++) {
+            int other = candidates[c];
+            double dx = store.getX(id) - x(other, time);
+            double dy = store.getY(id) - y(other, time);
+            double distance = Math.sqrt(dx * dx + dy * dy);
+            double reach = store.getRadius(id) + store.getRadius(other);
+            if (other == touched || distance < reach) {
+                distance = Math.max(distance, 1e-10);
+                ex += dx / distance;
+                ey += dy / distance;
+            }
+        }
+        double magnitude = Math.sqrt(ex * ex + ey * ey);
+        if (magnitude < 1e-10) {
+            store.setVelocity(id, 0, 0);
+            return;
+        }
+        double speed = store.getSpeed(id) / magnitude;
+        store.setVelocity(id, ex * speed, ey * speed);
+    }
+
+    private void predict(int id, double time) {
+        predictWall(id, time);
+        for (int c = candidateStart[id]; c < candidateStart[id + 1]; c++) {
+            predictContact(id, candidates[c], time);
+        }
+    }
+
+    // Schedules the moment two approaching agents touch, if it comes before the next tick
+    private void predictContact(int a, int b, double time) {
+        double dx = x(b, time) - x(a, time);
+        double dy = y(b, time) - y(a, time);
+        double wx = store.getVx(b) - store.getVx(a);
+        double wy = store.getVy(b) - store.getVy(a);
+        double approach = dx * wx + dy * wy;
+        if (approach >= 0) {
+            return;
+        }
+        double reach = store.getRadius(a) + store.getRadius(b);
+        double gap = dx * dx + dy * dy - reach * reach;
+        double at = time;
+        if (gap <= 0 && touchedAt[a] == time && touchedAt[b] == time) {
+            // Both already escaped from everybody they overlap at this instant
+            return;
+        }
+        if (gap > 0) {
+            double discriminant = approach * approach - (wx * wx + wy * wy) * gap;
+            if (discriminant < 0) {
+                return;
+            }
+            // Smaller root of |d + w t| = reach, written so it does not cancel
+            at = time + gap / (-approach + Math.sqrt(discriminant));
+        }
+        if (at < nextTick) {
+            queue.add(at, CONTACT, a, b, stamp[a], stamp[b]);
+        }
+    }
+
+    // Schedules the moment an agent reaches the wall, if it comes before the next tick
+    private void predictWall(int a, double time) {
+        double vx = store.getVx(a);
+        double vy = store.getVy(a);
+        double speed2 = vx * vx + vy * vy;
+        if (speed2 == 0) {
+            return;
+        }
+        double px = x(a, time);
+        double py = y(a, time);
+        double limit = arenaRadius - store.getRadius(a);
+        double outward = px * vx + py * vy;
+        double excess = px * px + py * py - limit * limit;
+        double at = time;
+        if (excess < 0) {
+            at = time + (-outward + Math.sqrt(outward * outward - speed2 * excess)) / speed2;
+        } else if (outward <= 0) {
+            return;
+        }
+        if (at < nextTick) {
+            queue.add(at, WALL, a, -1, stamp[a], 0);
+        }
+    }
+
+    private void collectCandidates() {
+        int size = store.size();
+        int count = 0;
+        for (int id = 0; id < size; id++) {
+            candidateStart[id] = count;
+            int found = query.collectWithin(id, candidateRange);
+            if (count + found > candidates.length) {
+                candidates = Arrays.copyOf(candidates, Math.max(count + found, 2 * candidates.length));
+            }
+            System.arraycopy(query.getNeighbours(), 0, candidates, count, found);
+            count += found;
+        }
+        candidateStart[size] = count;
+    }
+
+    // Pulls an agent whose radius grew past the wall back inside
+    private void keepInside(int id) {
+        double x = store.getX(id);
+        double y = store.getY(id);
+        double distance = Math.sqrt(x * x + y * y);
+        double limit = arenaRadius - store.getRadius(id);
+        if (distance > limit && distance > 1e-10) {
+            store.setPosition(id, x * limit / distance, y * limit / distance);
+        }
+    }
+
+    private void moveTo(int id, double time) {
+        store.setPosition(id, x(id, time), y(id, time));
+        since[id] = time;
+    }
+
+    private double x(int id, double time) {
+        return store.getX(id) + store.getVx(id) * (time - since[id]);
+    }
+
+    private double y(int id, double time) {
+        return store.getY(id) + store.getVy(id) * (time - since[id]);
+    }
+}
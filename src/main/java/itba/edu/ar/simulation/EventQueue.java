@@ -0,0 +1,171 @@
+package itba.edu.ar.simulation;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+// Binary min-heap of the events predicted by EventDrivenEngine, kept in parallel arrays so scheduling an event
+// allocates nothing
+class EventQueue {
+    private double[] time = new double[64];
+    private long[] order = new long[64];
+    private byte[] kind = new byte[64];
+    private int[] first = new int[64];
+    private int[] second = new int[64];
+    private int[] firstStamp = new int[64];
+    private int[] secondStamp = new int[64];
+    private int size;
+    private long inserted;
+
+    void add(double eventTime, byte eventKind, int a, int b, int stampA, int stampB) {
+        if (size == time.length) {
+            grow();
+        }
+        int slot = size++;
+        set(slot, eventTime, inserted++, eventKind, a, b, stampA, stampB);
+        siftUp(slot);
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Time of the earliest event, or positive infinity when empty
+    double peekTime() {
+        return size == 0 ? Double.POSITIVE_INFINITY : time[0];
+    }
+
+    byte peekKind() {
+        return kind[0];
+    }
+
+    int peekFirst() {
+        return first[0];
+    }
+
+    int peekSecond() {
+        return second[0];
+    }
+
+    int peekFirstStamp() {
+        return firstStamp[0];
+    }
+
+    int peekSecondStamp() {
+        return secondStamp[0];
+    }
+
+    // Removes the earliest event
+    void poll() {
+        size--;
+        if (size > 0) {
+            move(size, 0);
+            siftDown(0);
+        }
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    // Writes the pending events for a Checkpoint
+    void writeState(DataOutput out) throws IOException {
+        out.writeLong(inserted);
+        out.writeInt(size);
+        Checkpoint.writeDoubles(out, time, size);
+        Checkpoint.writeLongs(out, order, size);
+        out.write(kind, 0, size);
+        Checkpoint.writeInts(out, first, size);
+        Checkpoint.writeInts(out, second, size);
+        Checkpoint.writeInts(out, firstStamp, size);
+        Checkpoint.writeInts(out, secondStamp, size);
+    }
+
+    // Replaces the pending events with the ones written by writeState
+    void readState(DataInput in) throws IOException {
+        inserted = in.readLong();
+        size = in.readInt();
+        while (time.length < size) {
+            grow();
+        }
+        time = Checkpoint.readDoubles(in, time, size);
+        long[] orders = Checkpoint.readLongs(in, size);
+        System.arraycopy(orders, 0, order, 0, size);
+        in.readFully(kind, 0, size);
+        first = Checkpoint.readInts(in, first, size);
+        second = Checkpoint.readInts(in, second, size);
+        firstStamp = Checkpoint.readInts(in, firstStamp, size);
+        secondStamp = Checkpoint.readInts(in, secondStamp, size);
+    }
+
+    private void siftUp(int slot) {
+        while (slot > 0) {
+            int parent = (slot - 1) / 2;
+            if (!before(slot, parent)) {
+                break;
+            }
+            swap(slot, parent);
+            slot = parent;
+        }
+    }
+
+    private void siftDown(int slot) {
+        while (true) {
+            int child = 2 * slot + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && before(child + 1, child)) {
+                child++;
+            }
+            if (!before(child, slot)) {
+                break;
+            }
+            swap(slot, child);
+            slot = child;
+        }
+    }
+
+    private boolean before(int a, int b) {
+        return time[a] < time[b] || (time[a] == time[b] && order[a] < order[b]);
+    }
+
+    private void swap(int a, int b) {
+        double t = time[a];
+        long o = order[a];
+        byte k = kind[a];
+        int f = first[a];
+        int s = second[a];
+        int fs = firstStamp[a];
+        int ss = secondStamp[a];
+        move(b, a);
+        set(b, t, o, k, f, s, fs, ss);
+    }
+
+    private void move(int from, int to) {
+        set(to, time[from], order[from], kind[from], first[from], second[from], firstStamp[from], secondStamp[from]);
+    }
+
+    private void set(int slot, double eventTime, long eventOrder, byte eventKind, int a, int b, int stampA,
+            int stampB) {
+        time[slot] = eventTime;
+        order[slot] = eventOrder;
+        kind[slot] = eventKind;
+        first[slot] = a;
+        second[slot] = b;
+        firstStamp[slot] = stampA;
+        secondStamp[slot] = stampB;
+    }
+
+    private void grow() {
+        int capacity = time.length * 2;
+        time = Arrays.copyOf(time, capacity);
+        order = Arrays.copyOf(order, capacity);
+        kind = Arrays.copyOf(kind, capacity);
+        first = Arrays.copyOf(first, capacity);
+        second = Arrays.copyOf(second, capacity);
+        firstStamp = Arrays.copyOf(firstStamp, capacity);
+        secondStamp = Arrays.copyOf(secondStamp, capacity);
+    }
+}
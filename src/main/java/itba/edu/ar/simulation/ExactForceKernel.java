@@ -0,0 +1,52 @@
+package itba.edu.ar.simulation;
+
+// ForceKernel that evaluates every term with Math
+class ExactForceKernel implements ForceKernel {
+    private final double ah;
+    private final double bh;
+    private final double az;
+    private final double bz;
+    private final double aw;
+    private final double bw;
+    private final double cpmBeta;
+
+    ExactForceKernel(Config config) {
+        this.ah = config.getAh();
+        this.bh = config.getBh();
+        this.az = config.getAz();
+        this.bz = config.getBz();
+        this.aw = config.getAw();
+        this.bw = config.getBw();
+        this.cpmBeta = config.getCpmBeta();
+    }
+
+    @Override
+    public double humanRepulsion(double distance) {
+        return ah * Math.exp(-distance / bh);
+    }
+
+    @Override
+    public double zombieRepulsion(double distance) {
+        return az * Math.exp(-distance / bz);
+    }
+
+    @Override
+    public double wallRepulsion(double distance) {
+        return aw * Math.exp(-distance / bw);
+    }
+
+    @Override
+    public double speedFactor(double normalizedRadius) {
+        return Math.pow(normalizedRadius, cpmBeta);
+    }
+
+    @Override
+    public double cos(double angle) {
+        return Math.cos(angle);
+    }
+
+    @Override
+    public double sin(double angle) {
+        return Math.sin(angle);
+    }
+}
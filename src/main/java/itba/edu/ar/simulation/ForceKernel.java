@@ -0,0 +1,30 @@
+package itba.edu.ar.simulation;
+
+// Transcendental terms of the agent update: the exponential repulsions of the humans' desired direction, the power
+// law of the free speed and the sine and cosine of direction rotations
+public interface ForceKernel {
+    // ah * exp(-distance / bh), the repulsion of a human
+    double humanRepulsion(double distance);
+
+    // az * exp(-distance / bz), the repulsion of a zombie
+    double zombieRepulsion(double distance);
+
+    // aw * exp(-distance / bw), the repulsion of the wall
+    double wallRepulsion(double distance);
+
+    // normalizedRadius ^ cpmBeta, the fraction of the agent speed it moves at
+    double speedFactor(double normalizedRadius);
+
+    double cos(double angle);
+
+    double sin(double angle);
+
+    // The tabulated kernel if the configuration has a tabulatedKernel object, the exact one otherwise
+    static ForceKernel of(Config config) {
+        TabulatedKernel tabulated = config.getTabulatedKernel();
+        if (tabulated == null) {
+            return new ExactForceKernel(config);
+        }
+        return TabulatedForceKernel.of(config, tabulated.getTolerance());
+    }
+}
@@ -0,0 +1,182 @@
+package itba.edu.ar.simulation;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+// Infection contacts in progress and the state of every agent in them
+public class InfectionTable {
+    private static final byte NONE = 0;
+    private static final byte FROZEN = 1;
+    private static final byte DUE = 2;
+
+    private final AgentStore store;
+    private final double contactDuration;
+    private byte[] state;
+
+    // Contacts in start order, as a ring buffer
+    private int[] queueAgent;
+    private int[] queuePartner;
+    private double[] queueStart;
+    private int queueHead;
+    private int queueSize;
+
+    // Lower id of the contacts that became due in the last beginStep, sorted
+    private int[] due;
+    private int dueCount;
+
+    public InfectionTable(AgentStore store, Config config) {
+        int agents = Math.max(1, config.getInitialHumans() + config.getInitialZombies());
+        this.store = store;
+        this.contactDuration = config.getContactDuration();
+        this.state = new byte[agents];
+        this.queueAgent = new int[agents];
+        this.queuePartner = new int[agents];
+        this.queueStart = new double[agents];
+        this.due = new int[agents];
+    }
+
+    // Marks as due every contact whose period is over at time
+    public void beginStep(double time) {
+        dueCount = 0;
+        while (queueSize > 0 && !(time - queueStart[queueHead] < contactDuration)) {
+            int id = queueAgent[queueHead];
+            int other = queuePartner[queueHead];
+            double start = queueStart[queueHead];
+            queueHead = (queueHead + 1) % queueAgent.length;
+            queueSize--;
+
+            // Skip contacts that were already resolved
+            if (store.getContactAgent(id) != other || store.getContactStartTime(id) != start) {
+                continue;
+            }
+            state[id] = DUE;
+            state[other] = DUE;
+            due[dueCount++] = Math.min(id, other);
+        }
+        Arrays.sort(due, 0, dueCount);
+    }
+
+    // Time at which the oldest contact in progress ends, or positive infinity when there is none
+    public double nextExpiry() {
+        return queueSize == 0 ? Double.POSITIVE_INFINITY : queueStart[queueHead] + contactDuration;
+    }
+
+    // Time at which the oldest contact that is not yet due at time ends, or positive infinity when there is none
+    public double nextExpiryAfter(double time) {
+        for (int i = 0; i < queueSize; i++) {
+            double start = queueStart[(queueHead + i) % queueAgent.length];
+            // Same test as beginStep, queued contacts are in start order
+            if (time - start < contactDuration) {
+                return start + contactDuration;
+            }
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    // Starts an infection contact between two agents that are in no contact
+    public void start(int id, int other, double time) {
+        ensureCapacity(Math.max(id, other) + 1);
+        store.startContact(id, other, time);
+        // With no contact duration the contact is over as soon as it starts
+        byte contactState = contactDuration > 0 ? FROZEN : DUE;
+        state[id] = contactState;
+        state[other] = contactState;
+
+        if (queueSize == queueAgent.length) {
+            growQueue();
+        }
+        int tail = (queueHead + queueSize) % queueAgent.length;
+        queueAgent[tail] = id;
+        queuePartner[tail] = other;
+        queueStart[tail] = time;
+        queueSize++;
+    }
+
+    // Releases both agents of a resolved contact
+    public void end(int id, int other) {
+        store.endContact(id, other);
+        state[id] = NONE;
+        state[other] = NONE;
+    }
+
+    // Whether the agent is in the period of an infection contact
+    public boolean isFrozen(int id) {
+        return id < state.length && state[id] == FROZEN;
+    }
+
+    // Whether the agent is in a contact whose period is over and still has to be resolved
+    public boolean isDue(int id) {
+        return id < state.length && state[id] == DUE;
+    }
+
+    // Number of contacts that became due in the last beginStep
+    public int dueCount() {
+        return dueCount;
+    }
+
+    // Lower id of the k-th contact that became due in the last beginStep, in id order
+    public int dueAgent(int k) {
+        return due[k];
+    }
+
+    // Writes the state of every agent and the contacts in progress for a Checkpoint, between steps
+    void writeState(DataOutput out) throws IOException {
+        out.writeInt(state.length);
+        out.write(state);
+        out.writeInt(queueSize);
+        for (int i = 0; i < queueSize; i++) {
+            int slot = (queueHead + i) % queueAgent.length;
+            out.writeInt(queueAgent[slot]);
+            out.writeInt(queuePartner[slot]);
+            out.writeDouble(queueStart[slot]);
+        }
+    }
+
+    // Replaces the state with the one written by writeState
+    void readState(DataInput in) throws IOException {
+        int agents = in.readInt();
+        ensureCapacity(agents);
+        in.readFully(state, 0, agents);
+        queueHead = 0;
+        queueSize = 0;
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            if (queueSize == queueAgent.length) {
+                growQueue();
+            }
+            queueAgent[i] = in.readInt();
+            queuePartner[i] = in.readInt();
+            queueStart[i] = in.readDouble();
+            queueSize++;
+        }
+        dueCount = 0;
+    }
+
+    private void ensureCapacity(int agents) {
+        if (agents <= state.length) {
+            return;
+        }
+        int capacity = Math.max(agents, state.length * 2);
+        state = Arrays.copyOf(state, capacity);
+        due = Arrays.copyOf(due, capacity);
+    }
+
+    private void growQueue() {
+        int capacity = queueAgent.length * 2;
+        int[] agents = new int[capacity];
+        int[] partners = new int[capacity];
+        double[] starts = new double[capacity];
+        for (int i = 0; i < queueSize; i++) {
+            int slot = (queueHead + i) % queueAgent.length;
+            agents[i] = queueAgent[slot];
+            partners[i] = queuePartner[slot];
+            starts[i] = queueStart[slot];
+        }
+        queueAgent = agents;
+        queuePartner = partners;
+        queueStart = starts;
+        queueHead = 0;
+    }
+}
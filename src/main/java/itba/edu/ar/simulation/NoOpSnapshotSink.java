@@ -0,0 +1,18 @@
+package itba.edu.ar.simulation;
+
+// Sink that discards every frame, used when no per-step output is requested
+public class NoOpSnapshotSink implements SnapshotSink {
+    public static final NoOpSnapshotSink INSTANCE = new NoOpSnapshotSink();
+
+    @Override
+    public void accept(SimulationSnapshot snapshot) {
+    }
+
+    @Override
+    public void acceptStatistics(double time, double zombiePercentage, double averageVelocity) {
+    }
+
+    @Override
+    public void close() {
+    }
+}
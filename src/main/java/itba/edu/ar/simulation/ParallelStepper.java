@@ -0,0 +1,229 @@
+package itba.edu.ar.simulation;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Advances all agents of a simulation in phases that compute from a read-only view of the state and then commit, so
+// the compute phases can run on a ForkJoinPool
+public class ParallelStepper implements AutoCloseable {
+    // Agents per leaf task, small enough to balance the direction phase
+    private static final int CHUNK_SIZE = 256;
+
+    private enum Phase {
+        MOVE, CONTACTS, DIRECTION
+    }
+
+    private final Config config;
+    private final List<Agent> agents;
+    private final AgentStore store;
+    private final CellGrid grid;
+    private final ContactPairs contactPairs;
+    private final InfectionTable infections;
+    private final ForkJoinPool pool;
+    private final boolean ownsPool;
+
+    private final SplitMix64[] streams;
+    private final CellGrid.Query[] queries;
+    private final PairBuffer[] foundPairs;
+    private final double[] nextX;
+    private final double[] nextY;
+    private final double[] nextRadius;
+    private final boolean[] frozen;
+
+    private Phase phase;
+    private double dt;
+
+    public ParallelStepper(Config config, List<Agent> agents, AgentStore store, CellGrid grid,
+            ContactPairs contactPairs, InfectionTable infections, SplitMix64 random) {
+        this.config = config;
+        this.agents = agents;
+        this.store = store;
+        this.grid = grid;
+        this.contactPairs = contactPairs;
+        this.infections = infections;
+        this.ownsPool = config.getStepThreads() > 0;
+        this.pool = ownsPool ? new ForkJoinPool(config.getStepThreads()) : ForkJoinPool.commonPool();
+
+        int size = agents.size();
+        this.streams = new SplitMix64[size];
+        for (int id = 0; id < size; id++) {
+            streams[id] = new SplitMix64(random.nextLong());
+        }
+        this.queries = new CellGrid.Query[(size + CHUNK_SIZE - 1) / CHUNK_SIZE];
+        this.foundPairs = new PairBuffer[queries.length];
+        for (int chunk = 0; chunk < queries.length; chunk++) {
+            queries[chunk] = grid.newQuery();
+            foundPairs[chunk] = new PairBuffer();
+        }
+        this.nextX = new double[size];
+        this.nextY = new double[size];
+        this.nextRadius = new double[size];
+        this.frozen = new boolean[size];
+    }
+
+    // Advances every agent by dt
+    public void step(double dt, int realizationNumber, long stepNumber) {
+        this.dt = dt;
+        int size = agents.size();
+
+        // Contacts that are over are resolved before anyone moves
+        SimulationPhaseEvent event = SimulationPhaseEvent.begin(SimulationPhaseEvent.INFECTIONS);
+        for (int k = 0; k < infections.dueCount(); k++) {
+            int id = infections.dueAgent(k);
+            agents.get(id).handleInfection(streams[id]);
+        }
+        for (int id = 0; id < size; id++) {
+            frozen[id] = infections.isFrozen(id);
+        }
+        event.finish(config, realizationNumber, stepNumber);
+
+        event = SimulationPhaseEvent.begin(SimulationPhaseEvent.MOVE);
+        run(Phase.MOVE);
+        for (int id = 0; id < size; id++) {
+            store.setPosition(id, nextX[id], nextY[id]);
+            grid.update(id);
+        }
+        event.finish(config, realizationNumber, stepNumber);
+
+        event = SimulationPhaseEvent.begin(SimulationPhaseEvent.CONTACTS);
+        run(Phase.CONTACTS);
+        for (int id = 0; id < size; id++) {
+            store.setRadius(id, nextRadius[id]);
+        }
+        // Chunks hold ascending ids, so every agent lists its partners in id order
+        contactPairs.clear();
+        for (PairBuffer found : foundPairs) {
+            for (int p = 0; p < found.size; p++) {
+                contactPairs.link(found.first[p], found.second[p]);
+            }
+            found.size = 0;
+        }
+        event.finish(config, realizationNumber, stepNumber);
+
+        // Pairing in id order keeps the result deterministic
+        event = SimulationPhaseEvent.begin(SimulationPhaseEvent.PAIRING);
+        double time = config.getCurrentTime();
+        for (int id = 0; id < size; id++) {
+            if (frozen[id]) {
+                continue;
+            }
+            for (int pair = contactPairs.first(id); pair != -1; pair = contactPairs.next(pair, id)) {
+                int other = contactPairs.partner(pair, id);
+                if (store.getType(id) != store.getType(other) && !store.isInContact(id)
+                        && !store.isInContact(other)) {
+                    infections.start(id, other, time);
+                }
+            }
+        }
+        event.finish(config, realizationNumber, stepNumber);
+
+        event = SimulationPhaseEvent.begin(SimulationPhaseEvent.DIRECTION);
+        run(Phase.DIRECTION);
+        event.finish(config, realizationNumber, stepNumber);
+    }
+
+    // Writes the random stream of every agent for a Checkpoint
+    void writeState(DataOutput out) throws IOException {
+        out.writeInt(streams.length);
+        for (SplitMix64 stream : streams) {
+            out.writeLong(stream.getState());
+        }
+    }
+
+    // Restores the random streams written by writeState
+    void readState(DataInput in) throws IOException {
+        int count = in.readInt();
+        if (count != streams.length) {
+            throw new IOException("El checkpoint tiene " + count + " generadores aleatorios, se esperaban "
+                    + streams.length);
+        }
+        for (SplitMix64 stream : streams) {
+            stream.setState(in.readLong());
+        }
+    }
+
+    @Override
+    public void close() {
+        if (ownsPool) {
+            pool.shutdown();
+        }
+    }
+
+    private void run(Phase phase) {
+        this.phase = phase;
+        if (queries.length == 0) {
+            return;
+        }
+        pool.invoke(new ChunkTask(this, 0, queries.length));
+    }
+
+    private void compute(int chunk) {
+        int from = chunk * CHUNK_SIZE;
+        int to = Math.min(agents.size(), from + CHUNK_SIZE);
+        CellGrid.Query query = queries[chunk];
+        for (int id = from; id < to; id++) {
+            Agent agent = agents.get(id);
+            switch (phase) {
+                case MOVE:
+                    agent.computeMove(dt, streams[id], nextX, nextY);
+                    break;
+                case CONTACTS:
+                    nextRadius[id] = agent.computeContacts(query, foundPairs[chunk], dt, frozen[id]);
+                    break;
+                case DIRECTION:
+                    if (!frozen[id]) {
+                        agent.updateDesiredDirection(query, streams[id], dt);
+                    }
+                    break;
+            }
+        }
+    }
+
+    // Pairs found by one chunk in the contact phase
+    static class PairBuffer {
+        private int[] first = new int[CHUNK_SIZE];
+        private int[] second = new int[CHUNK_SIZE];
+        private int size;
+
+        void append(int a, int b) {
+            if (size == first.length) {
+                first = Arrays.copyOf(first, size * 2);
+                second = Arrays.copyOf(second, size * 2);
+            }
+            first[size] = a;
+            second[size] = b;
+            size++;
+        }
+    }
+
+    // Splits the chunks in halves until each task computes one
+    private static class ChunkTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        // Tasks are never serialized
+        private final transient ParallelStepper stepper;
+        private final int from;
+        private final int to;
+
+        ChunkTask(ParallelStepper stepper, int from, int to) {
+            this.stepper = stepper;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                stepper.compute(from);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ChunkTask(stepper, from, middle), new ChunkTask(stepper, middle, to));
+        }
+    }
+}
@@ -1,16 +1,15 @@
 package itba.edu.ar.simulation;
 
-import java.util.List;
-import java.util.Random;
+import java.util.random.RandomGenerator;
 
 public class PositionInitializer {
-    private static Random random = new Random();
-
-    public static Vector2D initializePosition(Config config, List<Agent> agents, Agent toPosition) {
+    public static Vector2D initializePosition(Config config, AgentStore store, AgentType type,
+            RandomGenerator random) {
+        DistanceKernel kernel = DistanceKernel.of(config);
         int maxAttempts = 100;
         int attempts = 0;
 
-        if (config.getInitialZombies() == 1 && toPosition.getType() == AgentType.ZOMBIE) {
+        if (config.getInitialZombies() == 1 && type == AgentType.ZOMBIE) {
             return new Vector2D(0, 0);
         }
 
@@ -20,7 +19,7 @@ public class PositionInitializer {
 
             // For zombies when there are multiple zombies, try to place in inner third
             // first
-            if (config.getInitialZombies() > 1 && toPosition.getType() == AgentType.ZOMBIE) {
+            if (config.getInitialZombies() > 1 && type == AgentType.ZOMBIE) {
                 radius = random.nextDouble() * (config.getArenaRadius() / 3.0);
             } else {
                 radius = random.nextDouble() * (config.getArenaRadius() - 1.0) + 1.0;
@@ -28,21 +27,10 @@ public class PositionInitializer {
 
             double x = radius * Math.cos(angle);
             double y = radius * Math.sin(angle);
-            Vector2D position = new Vector2D(x, y);
-
-            boolean validPosition = true;
-            for (Agent agent : agents) {
-                Vector2D diff = position.subtract(agent.getPosition());
-                double distance = diff.magnitude();
-                // Check if position overlaps with any existing agent
-                if (distance < agent.getRadius() * 2) {
-                    validPosition = false;
-                    break;
-                }
-            }
 
-            if (validPosition) {
-                return position;
+            // Check if position overlaps with any existing agent
+            if (!kernel.overlapsAny(x, y, store.positionsX(), store.positionsY(), store.radii(), store.size())) {
+                return new Vector2D(x, y);
             }
 
             attempts++;
@@ -0,0 +1,82 @@
+package itba.edu.ar.simulation;
+
+import java.util.List;
+
+// Decides which steps of a simulation are recorded
+public class RecordingPolicy {
+    // Record every stride steps
+    private int stride = 1;
+    // [start, end] pairs in seconds, null or empty means the whole run
+    private List<double[]> windows;
+    // Dense capture around infection events, in seconds
+    private double eventCaptureBefore;
+    private double eventCaptureAfter;
+
+    public RecordingPolicy() {
+    }
+
+    public RecordingPolicy(int stride, List<double[]> windows, double eventCaptureBefore,
+            double eventCaptureAfter) {
+        this.stride = stride;
+        this.windows = windows;
+        this.eventCaptureBefore = eventCaptureBefore;
+        this.eventCaptureAfter = eventCaptureAfter;
+    }
+
+    // Whether a step is recorded regardless of infection events
+    public boolean isScheduled(long step, double time) {
+        if (step % Math.max(1, stride) != 0) {
+            return false;
+        }
+        if (windows == null || windows.isEmpty()) {
+            return true;
+        }
+        for (double[] window : windows) {
+            if (time >= window[0] && time <= window[1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean capturesEvents() {
+        return eventCaptureBefore > 0 || eventCaptureAfter > 0;
+    }
+
+    // Whether every step is recorded, so no decision has to be made per step
+    public boolean recordsEverything() {
+        return stride <= 1 && (windows == null || windows.isEmpty());
+    }
+
+    public int getStride() {
+        return stride;
+    }
+
+    public void setStride(int stride) {
+        this.stride = stride;
+    }
+
+    public List<double[]> getWindows() {
+        return windows;
+    }
+
+    public void setWindows(List<double[]> windows) {
+        this.windows = windows;
+    }
+
+    public double getEventCaptureBefore() {
+        return eventCaptureBefore;
+    }
+
+    public void setEventCaptureBefore(double eventCaptureBefore) {
+        this.eventCaptureBefore = eventCaptureBefore;
+    }
+
+    public double getEventCaptureAfter() {
+        return eventCaptureAfter;
+    }
+
+    public void setEventCaptureAfter(double eventCaptureAfter) {
+        this.eventCaptureAfter = eventCaptureAfter;
+    }
+}
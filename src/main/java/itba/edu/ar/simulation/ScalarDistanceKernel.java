@@ -0,0 +1,57 @@
+package itba.edu.ar.simulation;
+
+// DistanceKernel that visits one agent at a time
+final class ScalarDistanceKernel implements DistanceKernel {
+    static final ScalarDistanceKernel INSTANCE = new ScalarDistanceKernel();
+
+    private ScalarDistanceKernel() {
+    }
+
+    @Override
+    public void distances(double x, double y, double[] xs, double[] ys, int count, double[] distances) {
+        distances(x, y, xs, ys, 0, count, distances);
+    }
+
+    @Override
+    public int touching(double x, double y, double radius, double[] xs, double[] ys, double[] radii, int count,
+            int[] touching) {
+        return touching(x, y, radius, xs, ys, radii, 0, count, touching, 0);
+    }
+
+    @Override
+    public boolean overlapsAny(double x, double y, double[] xs, double[] ys, double[] radii, int count) {
+        return overlapsAny(x, y, xs, ys, radii, 0, count);
+    }
+
+    static void distances(double x, double y, double[] xs, double[] ys, int from, int count, double[] distances) {
+        for (int n = from; n < count; n++) {
+            double dx = xs[n] - x;
+            double dy = ys[n] - y;
+            distances[n] = Math.sqrt(dx * dx + dy * dy);
+        }
+    }
+
+    static int touching(double x, double y, double radius, double[] xs, double[] ys, double[] radii, int from,
+            int count, int[] touching, int found) {
+        for (int n = from; n < count; n++) {
+            double dx = xs[n] - x;
+            double dy = ys[n] - y;
+            double distance = Math.max(Math.sqrt(dx * dx + dy * dy), 1e-10);
+            if (distance < radius + radii[n]) {
+                touching[found++] = n;
+            }
+        }
+        return found;
+    }
+
+    static boolean overlapsAny(double x, double y, double[] xs, double[] ys, double[] radii, int from, int count) {
+        for (int n = from; n < count; n++) {
+            double dx = x - xs[n];
+            double dy = y - ys[n];
+            if (Math.sqrt(dx * dx + dy * dy) < radii[n] * 2) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
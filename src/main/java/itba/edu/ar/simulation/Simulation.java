@@ -1,102 +1,404 @@
 package itba.edu.ar.simulation;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.random.RandomGenerator;
 
 public class Simulation {
     private Config config;
     private int realizationNumber;
     private List<Agent> agents;
+    private AgentStore store;
+    private CellGrid grid;
+    private ContactPairs contactPairs;
+    private InfectionTable infections;
+    private SplitMix64 random;
+    private ForceKernel kernel;
     private double currentTime;
-    private List<SimulationSnapshot> snapshots;
+    // Leído por el monitor del barrido desde otro hilo
+    private volatile long step;
+
+    // Sumas de las velocidades del último paso, acumuladas en orden de id
+    private double totalVx;
+    private double totalVy;
+    private double totalSpeed;
+
+    private SnapshotSink snapshotSink;
+    private SnapshotRecorder recorder;
+    // Null si los agentes se actualizan en secuencia
+    private ParallelStepper parallelStepper;
+    // Null si todos los pasos duran timeStep
+    private UniformResampler resampler;
+    // Null si los agentes se actualizan por pasos
+    private EventDrivenEngine eventEngine;
+
+    // Checkpoints periódicos, desactivados mientras el archivo es null
+    private Path checkpointFile;
+    private String checkpointKey = "";
+    private long checkpointIntervalMillis;
+    private long lastCheckpointMillis;
 
     public Simulation(Config config, int realizationNumber) {
+        this(config, realizationNumber, NoOpSnapshotSink.INSTANCE);
+    }
+
+    public Simulation(Config config, int realizationNumber, SnapshotSink snapshotSink) {
         this.config = config;
         this.realizationNumber = realizationNumber;
+        this.random = new SplitMix64(realizationSeed(config.getSeed(), realizationNumber));
         this.agents = new ArrayList<>();
-        this.snapshots = new ArrayList<>();
+        this.store = new AgentStore(config.getInitialHumans() + config.getInitialZombies());
+        this.grid = new CellGrid(config, store);
+        this.contactPairs = new ContactPairs(config.getInitialHumans() + config.getInitialZombies());
+        this.infections = new InfectionTable(store, config);
+        this.snapshotSink = snapshotSink;
+        this.recorder = new SnapshotRecorder(config.getRecording(), snapshotSink, config);
         this.currentTime = 0.0;
+        this.kernel = ForceKernel.of(config);
         initializeAgents();
+        if (!Config.STEPPING_PARALLEL.equals(config.getSteppingMode())
+                && !Config.STEPPING_SEQUENTIAL.equals(config.getSteppingMode())) {
+            throw new IllegalArgumentException("Modo de actualización desconocido: " + config.getSteppingMode());
+        }
+        // Con eventos los pasos solo marcan cuándo se informa el estado
+        if (config.getEventDriven() != null) {
+            this.eventEngine = new EventDrivenEngine(config, agents, store, grid, infections, random);
+            return;
+        }
+        if (config.getAdaptiveTimeStep() != null) {
+            // Un paso más largo que la relajación ya no sigue la dinámica del modelo
+            if (config.getAdaptiveTimeStep().getMaxTimeStep() > config.getRelaxationTime()) {
+                throw new IllegalArgumentException("El paso máximo adaptativo supera el tiempo de relajación: "
+                        + config.getAdaptiveTimeStep().getMaxTimeStep() + " > " + config.getRelaxationTime());
+            }
+            this.resampler = new UniformResampler(config, store);
+        }
+        if (Config.STEPPING_PARALLEL.equals(config.getSteppingMode())) {
+            this.parallelStepper = new ParallelStepper(config, agents, store, grid, contactPairs, infections,
+                    random);
+        }
+    }
+
+    // Semilla de una realización: solo depende de la semilla maestra y del número, así se reproduce sola
+    public static long realizationSeed(long masterSeed, int realizationNumber) {
+        // Finalizador de SplitMix64, para que realizaciones seguidas no se parezcan
+        long z = masterSeed + realizationNumber * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
     }
 
     private void initializeAgents() {
         // Inicializar zombies
         int i;
         for (i = 0; i < config.getInitialZombies(); i++) {
-            Agent zombie = new Agent(i, AgentType.ZOMBIE, agents, config);
+            Agent zombie = new Agent(i, AgentType.ZOMBIE, store, agents, grid, contactPairs, infections, random,
+                    kernel, config);
             agents.add(zombie);
+            grid.insert(i);
         }
 
         // Inicializar humanos
         for (int j = 0; j < config.getInitialHumans(); j++) {
-            Agent human = new Agent(i + j, AgentType.HUMAN, agents, config);
+            Agent human = new Agent(i + j, AgentType.HUMAN, store, agents, grid, contactPairs, infections,
+                    random, kernel, config);
             agents.add(human);
+            grid.insert(i + j);
         }
     }
 
     public FinishState run() {
-        while (currentTime < config.getSimulationTime()) {
-            // Actualizar estado de los agentes
-            updateAgents();
+        SimulationRunEvent event = new SimulationRunEvent();
+        event.begin();
+        try {
+            lastCheckpointMillis = System.currentTimeMillis();
+            FinishState finishState = runSteps();
+            deleteCheckpoint();
+            return finishState;
+        } finally {
+            close();
+            event.end();
+            if (event.shouldCommit()) {
+                event.describe(config, realizationNumber, step);
+                event.commit();
+            }
+        }
+    }
 
-            // if (config.isSaveSnapshots()) {
-            // // Guardar snapshot para análisis
-            // saveSnapshot();
-            // }
+    // Avanza un paso y lo registra. Devuelve si todavía hay humanos y zombies
+    public boolean step() {
+        double dt = resampler == null ? config.getTimeStep() : nextTimeStep();
+        if (resampler != null) {
+            resampler.beginStep(currentTime, dt, store);
+        }
+
+        // Actualizar estado de los agentes
+        updateAgents(dt);
 
-            saveSnapshot();
+        // Guardar snapshot si la política de grabación lo pide
+        saveSnapshot(dt);
 
-            // Incrementar tiempo
-            currentTime += config.getTimeStep();
-            config.setCurrentTime(currentTime);
-            if (getAmountHumans() == 0 || getAmountZombies() == 0) {
+        // Incrementar tiempo
+        step++;
+        currentTime += dt;
+        config.setCurrentTime(currentTime);
+        return store.count(AgentType.HUMAN) != 0 && store.count(AgentType.ZOMBIE) != 0;
+    }
+
+    // Libera los hilos del modo paralelo; run() ya lo hace, solo hace falta al usar step()
+    public void close() {
+        if (parallelStepper != null) {
+            parallelStepper.close();
+        }
+    }
+
+    private FinishState runSteps() {
+        while (currentTime < config.getSimulationTime()) {
+            if (!step()) {
                 break;
             }
+
+            // Guardar un checkpoint si pasó el intervalo
+            if (checkpointFile != null
+                    && System.currentTimeMillis() - lastCheckpointMillis >= checkpointIntervalMillis) {
+                SimulationPhaseEvent event = SimulationPhaseEvent.begin(SimulationPhaseEvent.CHECKPOINT);
+                try {
+                    writeCheckpoint(checkpointFile);
+                } catch (IOException e) {
+                    System.err.println("Error al guardar el checkpoint: " + e.getMessage());
+                }
+                event.finish(config, realizationNumber, step);
+                lastCheckpointMillis = System.currentTimeMillis();
+            }
         }
         return new FinishState(currentTime, getAmountZombies(), getAmountHumans(), averageVelocity());
     }
 
     public double averageVelocity() {
         // Promedio de los vectores de velocidad de todos los agentes
-        Vector2D totalVelocity = new Vector2D(0, 0);
-        for (Agent agent : agents) {
-            totalVelocity = totalVelocity.add(agent.getVelocity());
-        }
         // <-- + --> = 0.0/2
-        return totalVelocity.divide(agents.size()).magnitude();
+        double meanVx = totalVx / store.size();
+        double meanVy = totalVy / store.size();
+        return Math.sqrt(meanVx * meanVx + meanVy * meanVy);
+    }
+
+    // Rapidez media del último paso, la columna averageVelocity de _vel
+    public double averageSpeed() {
+        return totalSpeed / store.size();
+    }
+
+    public double zombiePercentage() {
+        return (double) store.count(AgentType.ZOMBIE) / store.size();
     }
 
     public int getAmountZombies() {
-        int count = 0;
-        for (Agent agent : agents) {
-            if (agent.getType() == AgentType.ZOMBIE) {
-                count++;
-            }
-        }
-        return count;
+        return store.count(AgentType.ZOMBIE);
     }
 
     public int getAmountHumans() {
-        int count = 0;
-        for (Agent agent : agents) {
-            if (agent.getType() == AgentType.HUMAN) {
-                count++;
-            }
+        return store.count(AgentType.HUMAN);
+    }
+
+    // Duración del próximo paso con paso adaptativo
+    private double nextTimeStep() {
+        AdaptiveTimeStep adaptive = config.getAdaptiveTimeStep();
+        double maxSpeed = 0;
+        for (int id = 0; id < store.size(); id++) {
+            maxSpeed = Math.max(maxSpeed, store.getSpeed(id));
         }
-        return count;
+        double dt = adaptive.getMaxTimeStep();
+        if (maxSpeed > 0) {
+            // Dos agentes de frente se acercan al doble de la velocidad máxima
+            dt = Math.min(dt, adaptive.getSafetyFactor() * grid.smallestGap() / (2 * maxSpeed));
+        }
+        // Cortar el paso donde termina el contacto más viejo. Los que vencen antes de un paso mínimo,
+        // como el que cortó el paso anterior, se resuelven igual al empezar este paso o el siguiente
+        dt = Math.min(dt, infections.nextExpiryAfter(currentTime + adaptive.getMinTimeStep()) - currentTime);
+        return Math.max(adaptive.getMinTimeStep(), dt);
     }
 
-    private void updateAgents() {
+    private void updateAgents(double dt) {
+        totalVx = 0;
+        totalVy = 0;
+        totalSpeed = 0;
+
+        if (eventEngine != null) {
+            // Procesar todos los eventos hasta el final del paso
+            SimulationPhaseEvent event = SimulationPhaseEvent.begin(SimulationPhaseEvent.EVENTS);
+            eventEngine.advance(currentTime + dt);
+            event.finish(config, realizationNumber, step);
+            sumVelocities();
+            return;
+        }
+
+        // Contactos cuyo período terminó en este paso
+        SimulationPhaseEvent event = SimulationPhaseEvent.begin(SimulationPhaseEvent.INFECTIONS);
+        infections.beginStep(currentTime);
+        event.finish(config, realizationNumber, step);
+
+        if (parallelStepper != null) {
+            // Todos los agentes calculan sobre el estado anterior y después se confirma
+            parallelStepper.step(dt, realizationNumber, step);
+            sumVelocities();
+            return;
+        }
+
         // Mover a los agentes
-        for (Agent agent : agents) {
-            agent.updatePosition(config.getTimeStep());
+        event = SimulationPhaseEvent.begin(SimulationPhaseEvent.AGENTS);
+        for (int id = 0; id < agents.size(); id++) {
+            agents.get(id).updatePosition(dt);
+
+            // Ningún agente posterior cambia la velocidad de este, ya es la final del paso
+            double vx = store.getVx(id);
+            double vy = store.getVy(id);
+            totalVx += vx;
+            totalVy += vy;
+            totalSpeed += Math.sqrt(vx * vx + vy * vy);
+        }
+        event.finish(config, realizationNumber, step);
+    }
+
+    private void sumVelocities() {
+        for (int id = 0; id < agents.size(); id++) {
+            double vx = store.getVx(id);
+            double vy = store.getVy(id);
+            totalVx += vx;
+            totalVy += vy;
+            totalSpeed += Math.sqrt(vx * vx + vy * vy);
+        }
+    }
+
+    private void saveSnapshot(double dt) {
+        if (snapshotSink == NoOpSnapshotSink.INSTANCE) {
+            return;
+        }
+        try {
+            if (resampler != null) {
+                // Escribir las filas de la grilla uniforme que alcanzó este paso
+                SimulationPhaseEvent event = SimulationPhaseEvent.begin(SimulationPhaseEvent.SNAPSHOT);
+                resampler.endStep(currentTime + dt, store, zombiePercentage(), averageSpeed(), snapshotSink,
+                        config.isSavePositions() ? recorder : null);
+                event.finish(config, realizationNumber, step);
+                return;
+            }
+            SimulationPhaseEvent event = SimulationPhaseEvent.begin(SimulationPhaseEvent.STATISTICS);
+            snapshotSink.acceptStatistics(currentTime, zombiePercentage(), averageSpeed());
+            event.finish(config, realizationNumber, step);
+            if (config.isSavePositions()) {
+                event = SimulationPhaseEvent.begin(SimulationPhaseEvent.SNAPSHOT);
+                // Con eventos cada agente quedó en la posición de su último evento
+                recorder.record(step, currentTime,
+                        eventEngine == null ? store : eventEngine.frameAt(currentTime + dt));
+                event.finish(config, realizationNumber, step);
+            }
+        } catch (IOException e) {
+            // Seguir simulando aunque no se pueda escribir la salida
+            System.err.println("Error al guardar los resultados: " + e.getMessage());
+            snapshotSink = NoOpSnapshotSink.INSTANCE;
+        }
+    }
+
+    // Guarda un checkpoint cada intervalMillis y lo borra al terminar. La clave identifica la corrida
+    public void enableCheckpoints(Path file, long intervalMillis, String key) {
+        this.checkpointFile = file;
+        this.checkpointIntervalMillis = intervalMillis;
+        this.checkpointKey = key;
+    }
+
+    // Guarda todo el estado entre dos pasos, con la posición hasta la que llegó la salida
+    public void writeCheckpoint(Path file) throws IOException {
+        long[] sinkPositions = snapshotSink.checkpoint();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(config.getSteppingMode());
+            out.writeBoolean(resampler != null);
+            out.writeBoolean(eventEngine != null);
+            out.writeDouble(currentTime);
+            out.writeLong(step);
+            out.writeDouble(totalVx);
+            out.writeDouble(totalVy);
+            out.writeDouble(totalSpeed);
+            out.writeLong(random.getState());
+            store.writeState(out);
+            contactPairs.writeState(out);
+            infections.writeState(out);
+            recorder.writeState(out);
+            if (resampler != null) {
+                resampler.writeState(out);
+            }
+            if (parallelStepper != null) {
+                parallelStepper.writeState(out);
+            }
+            if (eventEngine != null) {
+                eventEngine.writeState(out);
+            }
         }
+        new Checkpoint(checkpointKey, realizationNumber, config.getSeed(), store.size(), sinkPositions, bytes.toByteArray())
+                .write(file);
+    }
 
+    // Retoma un checkpoint de esta misma corrida; la salida ya tiene que estar donde él dice
+    public void restore(Checkpoint checkpoint, String key) throws IOException {
+        if (!checkpoint.getKey().equals(key)) {
+            throw new IOException("El checkpoint es de otra configuración: " + checkpoint.getKey());
+        }
+        if (checkpoint.getRealizationNumber() != realizationNumber || checkpoint.getSeed() != config.getSeed()
+                || checkpoint.getAgents() != store.size()) {
+            throw new IOException("El checkpoint de la realización " + checkpoint.getRealizationNumber()
+                    + " con semilla " + checkpoint.getSeed() + " y " + checkpoint.getAgents()
+                    + " agentes no corresponde a esta corrida");
+        }
+        DataInput in = checkpoint.state();
+        String steppingMode = in.readUTF();
+        if (!steppingMode.equals(config.getSteppingMode())) {
+            throw new IOException("Checkpoint guardado en modo " + steppingMode + ", la corrida usa "
+                    + config.getSteppingMode());
+        }
+        if (in.readBoolean() != (resampler != null)) {
+            throw new IOException("El checkpoint y la corrida no coinciden en el paso adaptativo");
+        }
+        if (in.readBoolean() != (eventEngine != null)) {
+            throw new IOException("El checkpoint y la corrida no coinciden en la actualización por eventos");
+        }
+        currentTime = in.readDouble();
+        step = in.readLong();
+        totalVx = in.readDouble();
+        totalVy = in.readDouble();
+        totalSpeed = in.readDouble();
+        random.setState(in.readLong());
+        store.readState(in);
+        grid.rebuild();
+        contactPairs.readState(in);
+        infections.readState(in);
+        recorder.readState(in);
+        if (resampler != null) {
+            resampler.readState(in);
+        }
+        if (parallelStepper != null) {
+            parallelStepper.readState(in);
+        }
+        if (eventEngine != null) {
+            eventEngine.readState(in);
+        }
+        config.setCurrentTime(currentTime);
     }
 
-    private void saveSnapshot() {
-        SimulationSnapshot snapshot = new SimulationSnapshot(currentTime, agents);
-        snapshots.add(snapshot);
+    private void deleteCheckpoint() {
+        if (checkpointFile == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(checkpointFile);
+        } catch (IOException e) {
+            System.err.println("Error al borrar el checkpoint: " + e.getMessage());
+        }
     }
 
     public Config getConfig() {
@@ -123,6 +425,14 @@ public class Simulation {
         this.agents = agents;
     }
 
+    public AgentStore getStore() {
+        return store;
+    }
+
+    public RandomGenerator getRandom() {
+        return random;
+    }
+
     public double getCurrentTime() {
         return currentTime;
     }
@@ -131,11 +441,21 @@ public class Simulation {
         this.currentTime = currentTime;
     }
 
-    public List<SimulationSnapshot> getSnapshots() {
-        return snapshots;
+    public SnapshotSink getSnapshotSink() {
+        return snapshotSink;
+    }
+
+    public void setSnapshotSink(SnapshotSink snapshotSink) {
+        this.snapshotSink = snapshotSink;
+        this.recorder = new SnapshotRecorder(config.getRecording(), snapshotSink, config);
+    }
+
+    public long getStep() {
+        return step;
     }
 
-    public void setSnapshots(List<SimulationSnapshot> snapshots) {
-        this.snapshots = snapshots;
+    // Bytes de los cuadros guardados para grabar
+    public long getSnapshotBytes() {
+        return recorder.heldBytes();
     }
 }
@@ -0,0 +1,31 @@
+package itba.edu.ar.simulation;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+// JDK Flight Recorder event about one realization of a simulation
+@Category({ "Zombies", "Simulation" })
+@StackTrace(false)
+public abstract class SimulationEvent extends Event {
+    @Label("Realization")
+    int realization;
+
+    @Label("Agents")
+    int agents;
+
+    @Label("Probability")
+    double probability;
+
+    @Label("Step")
+    long step;
+
+    // Sets the parameters of the realization the event belongs to
+    void describe(Config config, int realizationNumber, long stepNumber) {
+        this.realization = realizationNumber;
+        this.agents = config.getInitialHumans() + config.getInitialZombies();
+        this.probability = config.getProbabilityInfection();
+        this.step = stepNumber;
+    }
+}
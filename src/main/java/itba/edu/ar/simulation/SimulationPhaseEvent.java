@@ -0,0 +1,52 @@
+package itba.edu.ar.simulation;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// One phase of a simulation step
+@Name("itba.edu.ar.SimulationPhase")
+@Label("Simulation Phase")
+@Description("Time spent in one phase of a simulation step")
+public class SimulationPhaseEvent extends SimulationEvent {
+    // Resolving the infection contacts that are over
+    public static final String INFECTIONS = "infections";
+    // Sequential update of every agent
+    public static final String AGENTS = "agents";
+    // Parallel move phase
+    public static final String MOVE = "move";
+    // Parallel contact detection
+    public static final String CONTACTS = "contacts";
+    // Starting the infection contacts found, in id order
+    public static final String PAIRING = "pairing";
+    // Parallel desired direction
+    public static final String DIRECTION = "direction";
+    // Event-driven update up to the end of the step
+    public static final String EVENTS = "events";
+    // Writing the zombie percentage and average speed
+    public static final String STATISTICS = "statistics";
+    // Copying the positions and writing the recorded frames
+    public static final String SNAPSHOT = "snapshot";
+    // Writing a checkpoint
+    public static final String CHECKPOINT = "checkpoint";
+
+    @Label("Phase")
+    String phase;
+
+    // Creates the event of a phase that starts now
+    static SimulationPhaseEvent begin(String phase) {
+        SimulationPhaseEvent event = new SimulationPhaseEvent();
+        event.phase = phase;
+        event.begin();
+        return event;
+    }
+
+    // Ends the phase and commits it if a recording wants it
+    void finish(Config config, int realizationNumber, long stepNumber) {
+        end();
+        if (shouldCommit()) {
+            describe(config, realizationNumber, stepNumber);
+            commit();
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package itba.edu.ar.simulation;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// A whole Simulation.run
+@Name("itba.edu.ar.SimulationRun")
+@Label("Simulation Run")
+@Description("One realization, from the first step to its finish state")
+public class SimulationRunEvent extends SimulationEvent {
+}
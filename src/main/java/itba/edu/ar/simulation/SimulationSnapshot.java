@@ -1,40 +1,65 @@
 package itba.edu.ar.simulation;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
+// Frame of one instant, refilled on every recorded step: sinks copy what they keep
 public class SimulationSnapshot {
+    private static final AgentType[] TYPES = AgentType.values();
+
     private double time;
-    private List<Agent> agents;
+    private int size;
+    private byte[] types;
+    private double[] x;
+    private double[] y;
+    private double[] radius;
+    private double[] vx;
+    private double[] vy;
 
-    public SimulationSnapshot(double time, List<Agent> agents) {
-        this.time = time;
-        this.agents = new ArrayList<>();
+    public SimulationSnapshot(int capacity) {
+        allocate(Math.max(1, capacity));
+    }
 
-        // Crear una copia de los agentes para evitar referencias
-        for (Agent agent : agents) {
-            this.agents.add(new Agent(agent));
+    public long heldBytes() {
+        return (long) x.length * (Byte.BYTES + 5 * Double.BYTES);
+    }
+
+    public void capture(double time, AgentStore store) {
+        this.time = time;
+        this.size = store.size();
+        if (size > x.length) {
+            allocate(size);
+        }
+        for (int id = 0; id < size; id++) {
+            types[id] = (byte) store.getType(id).ordinal();
+            x[id] = store.getX(id);
+            y[id] = store.getY(id);
+            radius[id] = store.getRadius(id);
+            vx[id] = store.getVx(id);
+            vy[id] = store.getVy(id);
         }
     }
 
     public double averageVelocity() {
         // Promedio de los vectores de velocidad de todos los agentes
         double totalVelocity = 0;
-        for (Agent agent : agents) {
-            totalVelocity += agent.getVelocity().magnitude();
+        for (int id = 0; id < size; id++) {
+            totalVelocity += Math.sqrt(vx[id] * vx[id] + vy[id] * vy[id]);
         }
 //        <-- + --> = 0.0/2
-        return totalVelocity / agents.size();
+        return totalVelocity / size;
     }
 
     public double zombiePercentage() {
-        return (double) getAmountZombies() / (getAmountZombies() + getAmountHumans());
+        int zombies = getAmountZombies();
+        return (double) zombies / size;
     }
 
     public int getAmountZombies() {
         int count = 0;
-        for (Agent agent : agents) {
-            if (agent.getType() == AgentType.ZOMBIE) {
+        for (int id = 0; id < size; id++) {
+            if (getType(id) == AgentType.ZOMBIE) {
                 count++;
             }
         }
@@ -43,8 +68,8 @@ public class SimulationSnapshot {
 
     public int getAmountHumans() {
         int count = 0;
-        for (Agent agent : agents) {
-            if (agent.getType() == AgentType.HUMAN) {
+        for (int id = 0; id < size; id++) {
+            if (getType(id) == AgentType.HUMAN) {
                 count++;
             }
         }
@@ -55,7 +80,65 @@ public class SimulationSnapshot {
         return time;
     }
 
-    public List<Agent> getAgents() {
-        return agents;
+    public int size() {
+        return size;
+    }
+
+    public AgentType getType(int id) {
+        return TYPES[types[id]];
+    }
+
+    public double getX(int id) {
+        return x[id];
+    }
+
+    public double getY(int id) {
+        return y[id];
+    }
+
+    public double getRadius(int id) {
+        return radius[id];
+    }
+
+    public double getVx(int id) {
+        return vx[id];
+    }
+
+    public double getVy(int id) {
+        return vy[id];
+    }
+
+    void writeState(DataOutput out) throws IOException {
+        out.writeDouble(time);
+        out.writeInt(size);
+        out.write(types, 0, size);
+        Checkpoint.writeDoubles(out, x, size);
+        Checkpoint.writeDoubles(out, y, size);
+        Checkpoint.writeDoubles(out, radius, size);
+        Checkpoint.writeDoubles(out, vx, size);
+        Checkpoint.writeDoubles(out, vy, size);
+    }
+
+    void readState(DataInput in) throws IOException {
+        time = in.readDouble();
+        size = in.readInt();
+        if (size > x.length) {
+            allocate(size);
+        }
+        in.readFully(types, 0, size);
+        Checkpoint.readDoubles(in, x, size);
+        Checkpoint.readDoubles(in, y, size);
+        Checkpoint.readDoubles(in, radius, size);
+        Checkpoint.readDoubles(in, vx, size);
+        Checkpoint.readDoubles(in, vy, size);
+    }
+
+    private void allocate(int capacity) {
+        types = new byte[capacity];
+        x = new double[capacity];
+        y = new double[capacity];
+        radius = new double[capacity];
+        vx = new double[capacity];
+        vy = new double[capacity];
     }
 }
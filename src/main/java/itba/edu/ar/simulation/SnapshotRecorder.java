@@ -0,0 +1,112 @@
+package itba.edu.ar.simulation;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+// Applies a RecordingPolicy to the steps of one simulation and pushes the selected frames to a SnapshotSink, in
+// time order
+public class SnapshotRecorder {
+    private final RecordingPolicy policy;
+    private final SnapshotSink sink;
+    private final SimulationSnapshot current;
+
+    // Frames not yet recorded, oldest at head
+    private final SimulationSnapshot[] pending;
+    private int pendingHead;
+    private int pendingCount;
+
+    private long lastInfectionEvents;
+    private double captureUntil = Double.NEGATIVE_INFINITY;
+
+    public SnapshotRecorder(RecordingPolicy policy, SnapshotSink sink, Config config) {
+        this.policy = policy;
+        this.sink = sink;
+        int agents = config.getInitialHumans() + config.getInitialZombies();
+        this.current = new SimulationSnapshot(agents);
+
+        int pendingFrames = 0;
+        if (policy.getEventCaptureBefore() > 0 && !policy.recordsEverything()) {
+            pendingFrames = (int) Math.ceil(policy.getEventCaptureBefore() / config.getTimeStep());
+        }
+        this.pending = new SimulationSnapshot[pendingFrames];
+        for (int i = 0; i < pendingFrames; i++) {
+            pending[i] = new SimulationSnapshot(agents);
+        }
+    }
+
+    // Records the state of the store after a step if the policy asks for it
+    public void record(long step, double time, AgentStore store) throws IOException {
+        boolean event = store.getInfectionEvents() != lastInfectionEvents;
+        lastInfectionEvents = store.getInfectionEvents();
+        if (event && policy.capturesEvents()) {
+            captureUntil = time + policy.getEventCaptureAfter();
+            flushPending(time - policy.getEventCaptureBefore());
+        }
+
+        if (policy.isScheduled(step, time) || time <= captureUntil) {
+            current.capture(time, store);
+            sink.accept(current);
+            // Anything buffered is now older than the last recorded frame
+            pendingCount = 0;
+        } else if (pending.length > 0) {
+            bufferFrame(time, store);
+        }
+    }
+
+    // Bytes held by the current frame and the event capture buffer
+    public long heldBytes() {
+        long bytes = current.heldBytes();
+        for (SimulationSnapshot frame : pending) {
+            bytes += frame.heldBytes();
+        }
+        return bytes;
+    }
+
+    // Writes the buffered frames and event state for a Checkpoint
+    void writeState(DataOutput out) throws IOException {
+        out.writeLong(lastInfectionEvents);
+        out.writeDouble(captureUntil);
+        out.writeInt(pendingCount);
+        for (int i = 0; i < pendingCount; i++) {
+            pending[(pendingHead + i) % pending.length].writeState(out);
+        }
+    }
+
+    // Replaces the buffered frames and event state with the ones written by writeState
+    void readState(DataInput in) throws IOException {
+        lastInfectionEvents = in.readLong();
+        captureUntil = in.readDouble();
+        int count = in.readInt();
+        if (count > pending.length) {
+            throw new IOException("El checkpoint guarda " + count + " cuadros, la política de grabación admite "
+                    + pending.length);
+        }
+        pendingHead = 0;
+        pendingCount = count;
+        for (int i = 0; i < count; i++) {
+            pending[i].readState(in);
+        }
+    }
+
+    private void bufferFrame(double time, AgentStore store) {
+        int slot = (pendingHead + pendingCount) % pending.length;
+        if (pendingCount == pending.length) {
+            // Drop the oldest frame
+            pendingHead = (pendingHead + 1) % pending.length;
+        } else {
+            pendingCount++;
+        }
+        pending[slot].capture(time, store);
+    }
+
+    private void flushPending(double since) throws IOException {
+        for (int i = 0; i < pendingCount; i++) {
+            SimulationSnapshot frame = pending[(pendingHead + i) % pending.length];
+            if (frame.getTime() >= since) {
+                sink.accept(frame);
+            }
+        }
+        pendingCount = 0;
+    }
+}
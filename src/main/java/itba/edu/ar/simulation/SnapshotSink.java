@@ -0,0 +1,24 @@
+package itba.edu.ar.simulation;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+// Receives the frames of a simulation while it runs, so nothing has to be kept in memory until the run is over
+public interface SnapshotSink extends Closeable {
+    // Called once per recorded step
+    void accept(SimulationSnapshot snapshot) throws IOException;
+
+    // Called once per simulated step with the statistics of the _vel series, whether or not the step is recorded as
+    // a frame
+    void acceptStatistics(double time, double zombiePercentage, double averageVelocity) throws IOException;
+
+    // Writes out everything accepted so far, for a checkpoint taken between steps
+    default long[] checkpoint() throws IOException {
+        return new long[0];
+    }
+
+    // Size of the files written so far, also after close
+    default long bytesWritten() {
+        return 0;
+    }
+}
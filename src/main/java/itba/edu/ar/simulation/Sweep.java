@@ -0,0 +1,45 @@
+package itba.edu.ar.simulation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Declarative parameter sweep
+public class Sweep {
+    public static final String DESIGN_GRID = "grid";
+    public static final String DESIGN_LATIN_HYPERCUBE = "latinHypercube";
+
+    // "grid" or "latinHypercube"
+    private String design = DESIGN_GRID;
+    // Points drawn by the latin hypercube
+    private int samples = 10;
+    // Swept fields of the configuration by name, in sweep order
+    private Map<String, SweepParameter> parameters = new LinkedHashMap<>();
+
+    public Sweep() {
+    }
+
+    // DESIGN_GRID or DESIGN_LATIN_HYPERCUBE
+    public String getDesign() {
+        return design == null ? DESIGN_GRID : design;
+    }
+
+    public void setDesign(String design) {
+        this.design = design;
+    }
+
+    public int getSamples() {
+        return samples;
+    }
+
+    public void setSamples(int samples) {
+        this.samples = samples;
+    }
+
+    public Map<String, SweepParameter> getParameters() {
+        return parameters == null ? Map.of() : parameters;
+    }
+
+    public void setParameters(Map<String, SweepParameter> parameters) {
+        this.parameters = parameters;
+    }
+}
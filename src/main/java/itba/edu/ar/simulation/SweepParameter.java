@@ -0,0 +1,48 @@
+package itba.edu.ar.simulation;
+
+import java.util.List;
+
+// Values one field takes in a Sweep: the values list when it is given, otherwise the range from min to max
+public class SweepParameter {
+    private List<Double> values;
+    private double min;
+    private double max;
+    // Values of the range in the grid design
+    private int steps = 2;
+
+    public SweepParameter() {
+    }
+
+    // The listed values, or null to use the range
+    public List<Double> getValues() {
+        return values;
+    }
+
+    public void setValues(List<Double> values) {
+        this.values = values;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public void setMin(double min) {
+        this.min = min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    public void setMax(double max) {
+        this.max = max;
+    }
+
+    public int getSteps() {
+        return steps;
+    }
+
+    public void setSteps(int steps) {
+        this.steps = steps;
+    }
+}
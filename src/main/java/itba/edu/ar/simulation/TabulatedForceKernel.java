@@ -0,0 +1,140 @@
+package itba.edu.ar.simulation;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.DoubleUnaryOperator;
+
+// ForceKernel that interpolates linearly between samples of each term taken at evenly spaced points
+class TabulatedForceKernel implements ForceKernel {
+    private static final double TWO_PI = 2 * Math.PI;
+    // 2^24 intervals, 128 MB per table
+    private static final int MAX_INTERVALS = 1 << 24;
+    // Below it the speed factor is computed exactly, radii only get there right after a contact
+    private static final double SPEED_FROM = 1.0 / 16;
+
+    private static final Map<List<Double>, TabulatedForceKernel> KERNELS = new ConcurrentHashMap<>();
+
+    private final Table human;
+    private final Table zombie;
+    private final Table wall;
+    private final Table speed;
+    private final Table sine;
+    private final double cpmBeta;
+
+    // The kernel for the constants of the configuration, built on first use
+    static TabulatedForceKernel of(Config config, double tolerance) {
+        List<Double> constants = List.of(config.getAh(), config.getBh(), config.getAz(), config.getBz(),
+                config.getAw(), config.getBw(), config.getCpmBeta(), tolerance);
+        return KERNELS.computeIfAbsent(constants, key -> new TabulatedForceKernel(config, tolerance));
+    }
+
+    private TabulatedForceKernel(Config config, double tolerance) {
+        if (!(tolerance > 0)) {
+            throw new IllegalArgumentException("Tolerancia del kernel tabulado inválida: " + tolerance);
+        }
+        this.human = repulsion(config.getAh(), config.getBh(), tolerance);
+        this.zombie = repulsion(config.getAz(), config.getBz(), tolerance);
+        this.wall = repulsion(config.getAw(), config.getBw(), tolerance);
+        double cpmBeta = config.getCpmBeta();
+        this.cpmBeta = cpmBeta;
+        this.speed = Table.build(r -> Math.pow(r, cpmBeta), SPEED_FROM, 1, tolerance, false);
+        this.sine = Table.build(Math::sin, 0, TWO_PI, tolerance, false);
+    }
+
+    @Override
+    public double humanRepulsion(double distance) {
+        return human == null ? 0 : human.at(distance);
+    }
+
+    @Override
+    public double zombieRepulsion(double distance) {
+        return zombie == null ? 0 : zombie.at(distance);
+    }
+
+    @Override
+    public double wallRepulsion(double distance) {
+        return wall == null ? 0 : wall.at(distance);
+    }
+
+    @Override
+    public double speedFactor(double normalizedRadius) {
+        if (normalizedRadius < SPEED_FROM) {
+            return Math.pow(normalizedRadius, cpmBeta);
+        }
+        return speed.at(normalizedRadius);
+    }
+
+    @Override
+    public double cos(double angle) {
+        return sin(angle + Math.PI / 2);
+    }
+
+    @Override
+    public double sin(double angle) {
+        return sine.at(angle - TWO_PI * Math.floor(angle / TWO_PI));
+    }
+
+    // The table of a * exp(-distance / b), or null if it never exceeds the tolerance
+    private static Table repulsion(double a, double b, double tolerance) {
+        double range = b * Math.log(a / tolerance);
+        if (!(range > 0)) {
+            return null;
+        }
+        return Table.build(distance -> a * Math.exp(-distance / b), 0, range, tolerance, true);
+    }
+
+    private static final class Table {
+        private final double from;
+        private final double to;
+        private final double scale;
+        private final double[] values;
+        // Value past the last sample
+        private final double tail;
+
+        private Table(DoubleUnaryOperator function, double from, double to, int intervals, boolean zeroPast) {
+            this.from = from;
+            this.to = to;
+            this.scale = intervals / (to - from);
+            this.values = new double[intervals + 1];
+            for (int i = 0; i <= intervals; i++) {
+                values[i] = function.applyAsDouble(from + (to - from) * i / intervals);
+            }
+            this.tail = zeroPast ? 0 : values[intervals];
+        }
+
+        static Table build(DoubleUnaryOperator function, double from, double to, double tolerance,
+                boolean zeroPast) {
+            for (int intervals = 16; intervals <= MAX_INTERVALS; intervals *= 2) {
+                Table table = new Table(function, from, to, intervals, zeroPast);
+                if (table.maxError(function) <= tolerance) {
+                    return table;
+                }
+            }
+            throw new IllegalArgumentException("No se puede tabular con tolerancia " + tolerance);
+        }
+
+        double at(double x) {
+            if (x >= to) {
+                return tail;
+            }
+            double position = (Math.max(x, from) - from) * scale;
+            int i = Math.min((int) position, values.length - 2);
+            double fraction = position - i;
+            return values[i] + fraction * (values[i + 1] - values[i]);
+        }
+
+        private double maxError(DoubleUnaryOperator function) {
+            int intervals = values.length - 1;
+            double step = (to - from) / intervals;
+            double error = 0;
+            for (int i = 0; i < intervals; i++) {
+                for (int k = 1; k < 8; k++) {
+                    double x = from + step * (i + k / 8.0);
+                    error = Math.max(error, Math.abs(at(x) - function.applyAsDouble(x)));
+                }
+            }
+            return error;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package itba.edu.ar.simulation;
+
+// Settings of the TabulatedForceKernel
+public class TabulatedKernel {
+    // Largest absolute error of each tabulated term
+    private double tolerance = 1e-6;
+
+    public TabulatedKernel() {
+    }
+
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    public void setTolerance(double tolerance) {
+        this.tolerance = tolerance;
+    }
+}
@@ -0,0 +1,71 @@
+package itba.edu.ar.simulation;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+// Turns the steps of a run with AdaptiveTimeStep into the uniform series a fixed step run writes, one row every
+// timeStep
+class UniformResampler {
+    private final double interval;
+    private final double tolerance;
+    // State at the start of the current step, only kept when positions are recorded
+    private final AgentStore previous;
+    // Interpolated frame handed to the recorder
+    private final AgentStore frame;
+    private double previousTime;
+    private long nextRow;
+
+    UniformResampler(Config config, AgentStore store) {
+        this.interval = config.getTimeStep();
+        this.tolerance = 1e-9 * interval;
+        this.previous = config.isSavePositions() ? new AgentStore(store.size()) : null;
+        this.frame = config.isSavePositions() ? new AgentStore(store.size()) : null;
+    }
+
+    // Remembers the state before a step, when the step reaches a row
+    void beginStep(double time, double dt, AgentStore store) {
+        previousTime = time;
+        if (previous != null && reaches(time + dt)) {
+            previous.copyFrom(store);
+        }
+    }
+
+    // Writes every row the step that just ended at time reached
+    void endStep(double time, AgentStore store, double zombiePercentage, double averageSpeed, SnapshotSink sink,
+            SnapshotRecorder recorder) throws IOException {
+        while (reaches(time)) {
+            double rowTime = nextRow * interval;
+            sink.acceptStatistics(rowTime, zombiePercentage, averageSpeed);
+            if (recorder != null && previous != null) {
+                double weight = ((nextRow + 1) * interval - previousTime) / (time - previousTime);
+                interpolate(Math.min(1, Math.max(0, weight)), store);
+                recorder.record(nextRow, rowTime, frame);
+            }
+            nextRow++;
+        }
+    }
+
+    // Writes the next row for a Checkpoint, between steps
+    void writeState(DataOutput out) throws IOException {
+        out.writeLong(nextRow);
+    }
+
+    // Restores the next row written by writeState
+    void readState(DataInput in) throws IOException {
+        nextRow = in.readLong();
+    }
+
+    private boolean reaches(double time) {
+        return (nextRow + 1) * interval <= time + tolerance;
+    }
+
+    private void interpolate(double weight, AgentStore store) {
+        frame.copyFrom(store);
+        for (int id = 0; id < store.size(); id++) {
+            frame.setPosition(id, previous.getX(id) + weight * (store.getX(id) - previous.getX(id)),
+                    previous.getY(id) + weight * (store.getY(id) - previous.getY(id)));
+            frame.setRadius(id, previous.getRadius(id) + weight * (store.getRadius(id) - previous.getRadius(id)));
+        }
+    }
+}
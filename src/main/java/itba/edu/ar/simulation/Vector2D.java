@@ -77,6 +77,84 @@ public class Vector2D {
         );
     }
 
+    // ==========================
+    // In-place operations
+    // ==========================
+    // These mutate this vector and return it, so chains like
+    // v.set(p).subtractLocal(q).normalizeLocal() allocate nothing.
+    // They perform the same arithmetic as their allocating counterparts.
+
+    public Vector2D set(double x, double y) {
+        this.x = x;
+        this.y = y;
+        return this;
+    }
+
+    public Vector2D set(Vector2D other) {
+        this.x = other.x;
+        this.y = other.y;
+        return this;
+    }
+
+    public Vector2D addLocal(Vector2D other) {
+        this.x += other.x;
+        this.y += other.y;
+        return this;
+    }
+
+    public Vector2D addLocal(double x, double y) {
+        this.x += x;
+        this.y += y;
+        return this;
+    }
+
+    public Vector2D subtractLocal(Vector2D other) {
+        this.x -= other.x;
+        this.y -= other.y;
+        return this;
+    }
+
+    public Vector2D subtractLocal(double x, double y) {
+        this.x -= x;
+        this.y -= y;
+        return this;
+    }
+
+    public Vector2D multiplyLocal(double scalar) {
+        this.x *= scalar;
+        this.y *= scalar;
+        return this;
+    }
+
+    public Vector2D divideLocal(double scalar) {
+        if (Math.abs(scalar) < 1e-10) {
+            throw new IllegalArgumentException("Division by zero or near-zero");
+        }
+        this.x /= scalar;
+        this.y /= scalar;
+        return this;
+    }
+
+    public Vector2D normalizeLocal() {
+        double mag = magnitude();
+        if (mag < 1e-10) {
+            return set(0, 0);
+        }
+        return divideLocal(mag);
+    }
+
+    public Vector2D rotateLocal(double angle) {
+        return rotateLocal(Math.cos(angle), Math.sin(angle));
+    }
+
+    // Rotate by the angle with this cosine and sine
+    public Vector2D rotateLocal(double cos, double sin) {
+        return set(
+            x * cos - y * sin,
+            x * sin + y * cos
+        );
+    }
+
     // Get angle between this vector and another
     public double angleBetween(Vector2D other) {
         double dot = this.dot(other);
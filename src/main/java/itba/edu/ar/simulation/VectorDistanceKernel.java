@@ -0,0 +1,62 @@
+package itba.edu.ar.simulation;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+// DistanceKernel on the Vector API, bit for bit equal to the scalar kernel: lanes never fuse operations and the
+// scalar kernel finishes the block. Callers pack the candidates because gathers by id are slow on AVX2
+final class VectorDistanceKernel implements DistanceKernel {
+    // Kept apart so that loading the kernel without the module does not touch the Vector API
+    private static final class Lanes {
+        static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    }
+
+    VectorDistanceKernel() {
+    }
+
+    @Override
+    public void distances(double x, double y, double[] xs, double[] ys, int count, double[] distances) {
+        VectorSpecies<Double> species = Lanes.SPECIES;
+        int n = 0;
+        for (int bound = species.loopBound(count); n < bound; n += species.length()) {
+            DoubleVector dx = DoubleVector.fromArray(species, xs, n).sub(x);
+            DoubleVector dy = DoubleVector.fromArray(species, ys, n).sub(y);
+            dx.mul(dx).add(dy.mul(dy)).sqrt().intoArray(distances, n);
+        }
+        ScalarDistanceKernel.distances(x, y, xs, ys, n, count, distances);
+    }
+
+    @Override
+    public int touching(double x, double y, double radius, double[] xs, double[] ys, double[] radii, int count,
+            int[] touching) {
+        VectorSpecies<Double> species = Lanes.SPECIES;
+        int found = 0;
+        int n = 0;
+        for (int bound = species.loopBound(count); n < bound; n += species.length()) {
+            DoubleVector dx = DoubleVector.fromArray(species, xs, n).sub(x);
+            DoubleVector dy = DoubleVector.fromArray(species, ys, n).sub(y);
+            DoubleVector distance = dx.mul(dx).add(dy.mul(dy)).sqrt().max(1e-10);
+            DoubleVector reach = DoubleVector.broadcast(species, radius).add(DoubleVector.fromArray(species, radii, n));
+            // Lanes in contact, in order
+            for (long lanes = distance.lt(reach).toLong(); lanes != 0; lanes &= lanes - 1) {
+                touching[found++] = n + Long.numberOfTrailingZeros(lanes);
+            }
+        }
+        return ScalarDistanceKernel.touching(x, y, radius, xs, ys, radii, n, count, touching, found);
+    }
+
+    @Override
+    public boolean overlapsAny(double x, double y, double[] xs, double[] ys, double[] radii, int count) {
+        VectorSpecies<Double> species = Lanes.SPECIES;
+        int n = 0;
+        for (int bound = species.loopBound(count); n < bound; n += species.length()) {
+            DoubleVector dx = DoubleVector.broadcast(species, x).sub(DoubleVector.fromArray(species, xs, n));
+            DoubleVector dy = DoubleVector.broadcast(species, y).sub(DoubleVector.fromArray(species, ys, n));
+            DoubleVector twice = DoubleVector.fromArray(species, radii, n).mul(2);
+            if (dx.mul(dx).add(dy.mul(dy)).sqrt().lt(twice).anyTrue()) {
+                return true;
+            }
+        }
+        return ScalarDistanceKernel.overlapsAny(x, y, xs, ys, radii, n, count);
+    }
+}